@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Runs the same load test against the application on platform threads and then
+# on virtual threads (spring.threads.virtual.enabled) and prints throughput and
+# tail latency side by side. The application runs with -Djdk.tracePinnedThreads
+# so virtual threads that block while pinned to their carrier are reported.
+#
+# Needs JDK 21 and the packaged application: (cd .. && mvn -DskipTests package)
+#
+#   ./compare-thread-modes.sh
+#   LOAD_TEST_ARGS="--mode open --rate 400 --duration PT60S" ./compare-thread-modes.sh
+set -euo pipefail
+cd "$(dirname "$0")"
+
+WAR=${WAR:-../target/auth-course-0.0.1-SNAPSHOT.war}
+PORT=${PORT:-8080}
+MANAGEMENT_PORT=${MANAGEMENT_PORT:-8081}
+LOAD_TEST_ARGS=${LOAD_TEST_ARGS:---mode closed --concurrency 64 --duration PT60S --warmup PT15S}
+
+mvn -q compile
+mkdir -p target
+
+# Up only once the health endpoint answers 200 with status UP; a 503 while the
+# datasource or caches are still starting is not ready.
+healthy() {
+	[ "$(curl -s -o target/health.json -w '%{http_code}' \
+		"http://127.0.0.1:$MANAGEMENT_PORT/actuator/health")" = 200 ] &&
+		grep -q '"status":"UP"' target/health.json
+}
+
+first() {
+	grep -m1 "\"$1\"" "$2" | sed 's/.*: *\([0-9.]*\).*/\1/'
+}
+
+printf '%-9s %12s %9s %9s %9s %10s %7s\n' mode 'req/s' p50 p99 p99.9 errorRate pinned
+for virtual in false true; do
+	mode=$([ "$virtual" = true ] && echo virtual || echo platform)
+	java -Djdk.tracePinnedThreads=short -jar "$WAR" --server.port="$PORT" \
+		--management.server.port="$MANAGEMENT_PORT" \
+		--spring.threads.virtual.enabled="$virtual" --logging.file.name="target/app-$mode.json" \
+		> "target/app-$mode.log" 2>&1 &
+	app=$!
+	until healthy; do
+		kill -0 "$app" 2>/dev/null || { tail -20 "target/app-$mode.log"; exit 1; }
+		sleep 1
+	done
+
+	report="target/threads-$mode.json"
+	mvn -q exec:java -Dexec.args="--base-url http://localhost:$PORT $LOAD_TEST_ARGS --output $report" \
+		> "target/load-test-$mode.log"
+	kill "$app"
+	wait "$app" || true
+
+	pinned=$(grep -c '<== monitors' "target/app-$mode.log" || true)
+	printf '%-9s %12s %9s %9s %9s %10s %7s\n' "$mode" "$(first throughputPerSecond "$report")" \
+		"$(first p50 "$report")" "$(first p99 "$report")" "$(first p999 "$report")" \
+		"$(first errorRate "$report")" "$pinned"
+done
+echo "latency in ms; full reports in target/threads-*.json, application logs in target/app-*.log"
@@ -0,0 +1,88 @@
+package com.example.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram and outcome counts for one operation. Latencies are kept
+ * in nanoseconds with three significant digits.
+ */
+public class EndpointStats {
+
+	private final Operation operation;
+	private final Recorder latencies = new Recorder(3);
+	private final LongAdder errors = new LongAdder();
+	private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+	private Histogram histogram;
+
+	public EndpointStats(Operation operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * @param outcome the HTTP status code, or a short name for a request that got no response
+	 */
+	public void record(long latencyNanos, String outcome, boolean success) {
+		latencies.recordValue(Math.max(0, latencyNanos));
+		if (!success) {
+			errors.increment();
+		}
+		outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+	}
+
+	/** Drops everything recorded so far, at the end of the warmup. */
+	public void reset() {
+		latencies.getIntervalHistogram();
+		errors.reset();
+		outcomes.clear();
+	}
+
+	/** Freezes the histogram for reporting. */
+	public void finish() {
+		histogram = latencies.getIntervalHistogram();
+	}
+
+	public Map<String, Object> toReport(double seconds) {
+		long count = histogram.getTotalCount();
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("mean", millis(histogram.getMean()));
+		latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+		latency.put("p90", millis(histogram.getValueAtPercentile(90)));
+		latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+		latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+		latency.put("max", millis(histogram.getMaxValue()));
+		Map<String, Long> byOutcome = new TreeMap<>();
+		outcomes.forEach((outcome, n) -> byOutcome.put(outcome, n.sum()));
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("endpoint", operation.getEndpoint());
+		report.put("requests", count);
+		report.put("errors", errors.sum());
+		report.put("errorRate", count == 0 ? 0.0 : round((double) errors.sum() / count));
+		report.put("throughputPerSecond", round(count / seconds));
+		report.put("latencyMillis", latency);
+		report.put("outcomes", byOutcome);
+		return report;
+	}
+
+	public Histogram getHistogram() {
+		return histogram;
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	static double millis(double nanos) {
+		return round(nanos / 1_000_000.0);
+	}
+
+	static double round(double value) {
+		return Math.round(value * 1000.0) / 1000.0;
+	}
+}
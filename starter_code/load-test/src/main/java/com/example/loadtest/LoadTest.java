@@ -0,0 +1,289 @@
+package com.example.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.example.loadtest.ShopClient.Shopper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Drives a running application with a weighted mix of signups, logins,
+ * catalog browsing, cart updates and checkouts, then reports latency
+ * percentiles, throughput and error rates per endpoint to the console and to
+ * a JSON file that can be diffed between releases.
+ *
+ * <p>In closed-loop mode {@code concurrency} shoppers each send their next
+ * request as soon as the previous one answers. In open-loop mode requests
+ * start at a fixed {@code rate} regardless of how the server keeps up, and
+ * latency is measured from each request's scheduled start so that queueing
+ * delay is not hidden (no coordinated omission).
+ */
+public class LoadTest {
+
+	private final Options options;
+	private final ShopClient client;
+	private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+	private final Operation[] weighted;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile boolean stopped;
+
+	public LoadTest(Options options) {
+		this.options = options;
+		this.client = new ShopClient(options.baseUrl, options.itemIds);
+		List<Operation> slots = new ArrayList<>();
+		options.mix.forEach((operation, weight) -> {
+			stats.put(operation, new EndpointStats(operation));
+			for (int i = 0; i < weight; i++) {
+				slots.add(operation);
+			}
+		});
+		if (slots.isEmpty()) {
+			throw new IllegalArgumentException("The traffic mix is empty");
+		}
+		this.weighted = slots.toArray(new Operation[0]);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new LoadTest(Options.parse(args)).run();
+	}
+
+	public void run() throws Exception {
+		Instant startedAt = Instant.now();
+		List<Shopper> shoppers = createShoppers();
+		System.out.printf("Running %s loop against %s for %s after %s warmup%n", options.mode, options.baseUrl,
+				options.duration, options.warmup);
+
+		long start = System.nanoTime();
+		long measureFrom = start + options.warmup.toNanos();
+		long end = measureFrom + options.duration.toNanos();
+		Thread driver = new Thread(() -> {
+			if (options.mode == Options.Mode.OPEN) {
+				openLoop(shoppers, start, end);
+			} else {
+				closedLoop(shoppers);
+			}
+		}, "load-driver");
+		driver.start();
+		sleepUntil(measureFrom);
+		stats.values().forEach(EndpointStats::reset);
+		sleepUntil(end);
+		stopped = true;
+		driver.join();
+		long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+			Thread.sleep(10);
+		}
+		stats.values().forEach(EndpointStats::finish);
+
+		double seconds = options.duration.toNanos() / 1e9;
+		Map<String, Object> report = report(startedAt, seconds);
+		printTable(seconds);
+		File output = new File(options.output);
+		if (output.getAbsoluteFile().getParentFile() != null) {
+			output.getAbsoluteFile().getParentFile().mkdirs();
+		}
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+		System.out.println("Results written to " + output.getPath());
+		System.exit(0);
+	}
+
+	private List<Shopper> createShoppers() throws Exception {
+		ExecutorService setup = Executors.newFixedThreadPool(Math.max(1, Math.min(options.concurrency, 16)));
+		List<Callable<Shopper>> tasks = new ArrayList<>();
+		for (int i = 0; i < options.users; i++) {
+			tasks.add(() -> {
+				Shopper shopper = client.newShopper("u");
+				expectOk(client.getHttp().send(client.signup(shopper), HttpResponse.BodyHandlers.discarding()),
+						"signup");
+				HttpResponse<Void> login = client.getHttp().send(client.login(shopper),
+						HttpResponse.BodyHandlers.discarding());
+				expectOk(login, "login");
+				client.onResponse(Operation.LOGIN, shopper, login);
+				return shopper;
+			});
+		}
+		List<Shopper> shoppers = new ArrayList<>();
+		try {
+			for (Future<Shopper> shopper : setup.invokeAll(tasks)) {
+				shoppers.add(shopper.get());
+			}
+		} finally {
+			setup.shutdownNow();
+		}
+		System.out.printf("Created %d shoppers%n", shoppers.size());
+		return shoppers;
+	}
+
+	private void closedLoop(List<Shopper> shoppers) {
+		ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+		for (int i = 0; i < options.concurrency; i++) {
+			Shopper shopper = shoppers.get(i % shoppers.size());
+			workers.execute(() -> {
+				while (!stopped) {
+					Operation operation = next();
+					renew(shopper).join();
+					HttpRequest request = client.request(operation, shopper);
+					long start = System.nanoTime();
+					try {
+						HttpResponse<Void> response = client.getHttp().send(request,
+								HttpResponse.BodyHandlers.discarding());
+						record(operation, shopper, response, System.nanoTime() - start);
+					} catch (IOException e) {
+						stats.get(operation).record(System.nanoTime() - start, "io-error", false);
+					} catch (InterruptedException e) {
+						return;
+					}
+					if (!options.thinkTime.isZero()) {
+						LockSupport.parkNanos(options.thinkTime.toNanos());
+					}
+				}
+			});
+		}
+		workers.shutdown();
+		try {
+			workers.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void openLoop(List<Shopper> shoppers, long start, long end) {
+		long interval = (long) (1e9 / options.rate);
+		long scheduled = start;
+		while (!stopped && scheduled < end) {
+			sleepUntil(scheduled);
+			long intended = scheduled;
+			scheduled += interval;
+			Operation operation = next();
+			Shopper shopper = shoppers.get(ThreadLocalRandom.current().nextInt(shoppers.size()));
+			if (inFlight.get() >= options.maxInFlight) {
+				stats.get(operation).record(System.nanoTime() - intended, "dropped", false);
+				continue;
+			}
+			inFlight.incrementAndGet();
+			renew(shopper)
+					.thenCompose(ignored -> client.getHttp().sendAsync(client.request(operation, shopper),
+							HttpResponse.BodyHandlers.discarding()))
+					.whenComplete((response, error) -> {
+						long latency = System.nanoTime() - intended;
+						if (error != null) {
+							stats.get(operation).record(latency, "io-error", false);
+						} else {
+							record(operation, shopper, response, latency);
+						}
+						inFlight.decrementAndGet();
+					});
+		}
+	}
+
+	/**
+	 * Renews the shopper's tokens when they are about to expire. A failed
+	 * renewal is not recorded on its own: the request that follows goes out
+	 * with the old token and its 401 shows up in the results.
+	 */
+	private CompletableFuture<Void> renew(Shopper shopper) {
+		return client.renewIfExpiring(shopper).exceptionally(error -> null);
+	}
+
+	private void record(Operation operation, Shopper shopper, HttpResponse<?> response, long latency) {
+		client.onResponse(operation, shopper, response);
+		int status = response.statusCode();
+		stats.get(operation).record(latency, Integer.toString(status), status >= 200 && status < 300);
+	}
+
+	private Operation next() {
+		return weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+	}
+
+	private Map<String, Object> report(Instant startedAt, double seconds) {
+		Map<String, Object> settings = new LinkedHashMap<>();
+		settings.put("baseUrl", options.baseUrl);
+		settings.put("mode", options.mode.name().toLowerCase());
+		if (options.mode == Options.Mode.OPEN) {
+			settings.put("ratePerSecond", options.rate);
+			settings.put("maxInFlight", options.maxInFlight);
+		} else {
+			settings.put("concurrency", options.concurrency);
+			settings.put("thinkTimeMillis", options.thinkTime.toMillis());
+		}
+		settings.put("durationSeconds", options.duration.toSeconds());
+		settings.put("warmupSeconds", options.warmup.toSeconds());
+		settings.put("users", options.users);
+		Map<String, Integer> mix = new LinkedHashMap<>();
+		options.mix.forEach((operation, weight) -> mix.put(operation.getName(), weight));
+		settings.put("mix", mix);
+
+		Histogram all = new Histogram(3);
+		long errors = 0;
+		Map<String, Object> endpoints = new LinkedHashMap<>();
+		for (EndpointStats endpoint : stats.values()) {
+			all.add(endpoint.getHistogram());
+			errors += endpoint.getErrors();
+		}
+		stats.forEach((operation, endpoint) -> endpoints.put(operation.getName(), endpoint.toReport(seconds)));
+		long requests = all.getTotalCount();
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("p50", EndpointStats.millis(all.getValueAtPercentile(50)));
+		latency.put("p99", EndpointStats.millis(all.getValueAtPercentile(99)));
+		latency.put("p999", EndpointStats.millis(all.getValueAtPercentile(99.9)));
+		latency.put("max", EndpointStats.millis(all.getMaxValue()));
+		Map<String, Object> total = new LinkedHashMap<>();
+		total.put("requests", requests);
+		total.put("errors", errors);
+		total.put("errorRate", requests == 0 ? 0.0 : EndpointStats.round((double) errors / requests));
+		total.put("throughputPerSecond", EndpointStats.round(requests / seconds));
+		total.put("latencyMillis", latency);
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("startedAt", startedAt.toString());
+		report.put("settings", settings);
+		report.put("total", total);
+		report.put("endpoints", endpoints);
+		return report;
+	}
+
+	private void printTable(double seconds) {
+		System.out.printf("%-10s %9s %8s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors", "req/s",
+				"p50 ms", "p99 ms", "p999 ms", "max ms");
+		stats.forEach((operation, endpoint) -> {
+			Histogram h = endpoint.getHistogram();
+			System.out.printf("%-10s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n", operation.getName(),
+					h.getTotalCount(), endpoint.getErrors(), h.getTotalCount() / seconds,
+					EndpointStats.millis(h.getValueAtPercentile(50)), EndpointStats.millis(h.getValueAtPercentile(99)),
+					EndpointStats.millis(h.getValueAtPercentile(99.9)), EndpointStats.millis(h.getMaxValue()));
+		});
+	}
+
+	private static void expectOk(HttpResponse<?> response, String step) {
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Setup " + step + " failed with status " + response.statusCode());
+		}
+	}
+
+	private static void sleepUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.loadtest;
+
+/**
+ * The kinds of request in the traffic mix.
+ */
+public enum Operation {
+
+	SIGNUP("signup", "POST /api/user/create"),
+	LOGIN("login", "POST /login"),
+	BROWSE("browse", "GET /api/item"),
+	CART("cart", "POST /api/cart/addToCart"),
+	CHECKOUT("checkout", "POST /api/order/submit/{username}");
+
+	private final String name;
+	private final String endpoint;
+
+	Operation(String name, String endpoint) {
+		this.name = name;
+		this.endpoint = endpoint;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	static Operation byName(String name) {
+		for (Operation operation : values()) {
+			if (operation.name.equals(name)) {
+				return operation;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation " + name);
+	}
+}
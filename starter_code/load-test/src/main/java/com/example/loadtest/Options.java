@@ -0,0 +1,88 @@
+package com.example.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code --name=value} or {@code --name value}.
+ */
+public class Options {
+
+	public enum Mode {
+		/** a fixed number of users, each sending its next request once the last one answered */
+		CLOSED,
+		/** requests started at a fixed rate whether or not earlier ones have answered */
+		OPEN
+	}
+
+	String baseUrl = "http://localhost:8080";
+	Mode mode = Mode.CLOSED;
+	int concurrency = 16;
+	double rate = 100;
+	int maxInFlight = 1000;
+	Duration duration = Duration.ofSeconds(60);
+	Duration warmup = Duration.ofSeconds(10);
+	Duration thinkTime = Duration.ZERO;
+	int users = 50;
+	long[] itemIds = {1, 2};
+	Map<Operation, Integer> mix = parseMix("signup:1,login:4,browse:60,cart:25,checkout:10");
+	String output = "target/load-test-results.json";
+
+	static Options parse(String[] args) {
+		Options options = new Options();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("--")) {
+				throw new IllegalArgumentException("Unexpected argument: " + arg);
+			}
+			String name;
+			String value;
+			int eq = arg.indexOf('=');
+			if (eq > 0) {
+				name = arg.substring(2, eq);
+				value = arg.substring(eq + 1);
+			} else if (i + 1 < args.length) {
+				name = arg.substring(2);
+				value = args[++i];
+			} else {
+				throw new IllegalArgumentException("Missing value for " + arg);
+			}
+			options.set(name, value);
+		}
+		return options;
+	}
+
+	private void set(String name, String value) {
+		switch (name) {
+			case "base-url" -> baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+			case "mode" -> mode = Mode.valueOf(value.toUpperCase());
+			case "concurrency" -> concurrency = Integer.parseInt(value);
+			case "rate" -> rate = Double.parseDouble(value);
+			case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+			case "duration" -> duration = Duration.parse(value);
+			case "warmup" -> warmup = Duration.parse(value);
+			case "think-time" -> thinkTime = Duration.parse(value);
+			case "users" -> users = Integer.parseInt(value);
+			case "item-ids" -> {
+				String[] ids = value.split(",");
+				itemIds = new long[ids.length];
+				for (int i = 0; i < ids.length; i++) {
+					itemIds[i] = Long.parseLong(ids[i].trim());
+				}
+			}
+			case "mix" -> mix = parseMix(value);
+			case "output" -> output = value;
+			default -> throw new IllegalArgumentException("Unknown option --" + name);
+		}
+	}
+
+	static Map<Operation, Integer> parseMix(String value) {
+		Map<Operation, Integer> mix = new LinkedHashMap<>();
+		for (String part : value.split(",")) {
+			String[] weight = part.split(":");
+			mix.put(Operation.byName(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+		}
+		return mix;
+	}
+}
@@ -0,0 +1,202 @@
+package com.example.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the HTTP requests for each {@link Operation} and keeps the bearer
+ * token of every simulated user up to date: tokens are renewed through the
+ * refresh endpoint shortly before they expire or as soon as the server
+ * refuses one, and by logging in again if the refresh token is refused too.
+ */
+public class ShopClient {
+
+	static final String PASSWORD = "load-test-password";
+
+	/** How long before its expiry an access token is renewed. */
+	static final long REFRESH_MARGIN_MILLIS = Duration.ofSeconds(30).toMillis();
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final HttpClient http;
+	private final String baseUrl;
+	private final long[] itemIds;
+	private final String runId = Long.toString(System.currentTimeMillis(), 36);
+	private final AtomicLong signups = new AtomicLong();
+
+	public ShopClient(String baseUrl, long[] itemIds) {
+		this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		this.baseUrl = baseUrl;
+		this.itemIds = itemIds;
+	}
+
+	public HttpClient getHttp() {
+		return http;
+	}
+
+	/**
+	 * A simulated shopper with an account and a current token.
+	 */
+	public static class Shopper {
+		final String username;
+		volatile String token;
+		volatile String refreshToken;
+		volatile long expiresAt;
+		private CompletableFuture<Void> renewal;
+
+		Shopper(String username) {
+			this.username = username;
+		}
+	}
+
+	public Shopper newShopper(String prefix) {
+		return new Shopper("lt-" + runId + "-" + prefix + signups.incrementAndGet());
+	}
+
+	public HttpRequest request(Operation operation, Shopper shopper) {
+		switch (operation) {
+			case SIGNUP:
+				return signup(newShopper("s"));
+			case LOGIN:
+				return login(shopper);
+			case BROWSE:
+				return authorized(shopper, "/api/item?size=20").GET().build();
+			case CART:
+				long itemId = itemIds[ThreadLocalRandom.current().nextInt(itemIds.length)];
+				return authorized(shopper, "/api/cart/addToCart")
+						.header("Content-Type", "application/json")
+						.POST(json("{\"username\":\"" + shopper.username + "\",\"itemId\":" + itemId + ",\"quantity\":1}"))
+						.build();
+			case CHECKOUT:
+				return authorized(shopper, "/api/order/submit/" + shopper.username)
+						.POST(HttpRequest.BodyPublishers.noBody()).build();
+			default:
+				throw new IllegalArgumentException(operation.name());
+		}
+	}
+
+	/**
+	 * Applies the side effects of a response: a successful login replaces the
+	 * shopper's tokens, and a 401 or 403 for the shopper's current token marks
+	 * it for renewal before the next request.
+	 */
+	public void onResponse(Operation operation, Shopper shopper, HttpResponse<?> response) {
+		int status = response.statusCode();
+		if (operation == Operation.LOGIN && status == 200) {
+			storeTokens(shopper, response);
+		} else if ((status == 401 || status == 403) && shopper.token != null
+				&& shopper.token.equals(response.request().headers().firstValue("Authorization").orElse(null))) {
+			shopper.expiresAt = 0;
+		}
+	}
+
+	/**
+	 * Renews the shopper's tokens if the access token expires within
+	 * {@link #REFRESH_MARGIN_MILLIS} or was refused. Concurrent callers for the
+	 * same shopper share one renewal, since each refresh token is only good
+	 * once.
+	 */
+	public CompletableFuture<Void> renewIfExpiring(Shopper shopper) {
+		synchronized (shopper) {
+			if (shopper.renewal != null) {
+				return shopper.renewal;
+			}
+			if (shopper.token == null || shopper.expiresAt - System.currentTimeMillis() > REFRESH_MARGIN_MILLIS) {
+				return CompletableFuture.completedFuture(null);
+			}
+			CompletableFuture<Void> renewal = renew(shopper).whenComplete((ignored, error) -> {
+				synchronized (shopper) {
+					shopper.renewal = null;
+				}
+			});
+			if (!renewal.isDone()) {
+				shopper.renewal = renewal;
+			}
+			return renewal;
+		}
+	}
+
+	private CompletableFuture<Void> renew(Shopper shopper) {
+		CompletableFuture<HttpResponse<Void>> refreshed = shopper.refreshToken == null
+				? CompletableFuture.completedFuture(null)
+				: http.sendAsync(refresh(shopper), HttpResponse.BodyHandlers.discarding());
+		return refreshed.thenCompose(response -> {
+			if (response != null && response.statusCode() == 204) {
+				storeTokens(shopper, response);
+				return CompletableFuture.<Void>completedFuture(null);
+			}
+			return http.sendAsync(login(shopper), HttpResponse.BodyHandlers.discarding()).thenAccept(login -> {
+				if (login.statusCode() == 200) {
+					storeTokens(shopper, login);
+				}
+			});
+		});
+	}
+
+	private static void storeTokens(Shopper shopper, HttpResponse<?> response) {
+		response.headers().firstValue("Refresh-Token").ifPresent(token -> shopper.refreshToken = token);
+		response.headers().firstValue("Authorization").ifPresent(token -> {
+			shopper.expiresAt = expiresAt(token);
+			shopper.token = token;
+		});
+	}
+
+	/**
+	 * Reads the {@code exp} claim of a bearer token, in epoch milliseconds.
+	 * The signature is the server's business; the client only needs to know
+	 * when to renew.
+	 */
+	static long expiresAt(String bearerToken) {
+		String[] parts = bearerToken.substring(bearerToken.indexOf(' ') + 1).split("\\.");
+		try {
+			JsonNode claims = JSON.readTree(Base64.getUrlDecoder().decode(parts[1]));
+			return claims.path("exp").asLong() * 1000;
+		} catch (Exception e) {
+			return 0;
+		}
+	}
+
+	HttpRequest signup(Shopper shopper) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/api/user/create"))
+				.header("Content-Type", "application/json")
+				.POST(json("{\"username\":\"" + shopper.username + "\",\"password\":\"" + PASSWORD
+						+ "\",\"confirmPassword\":\"" + PASSWORD + "\"}"))
+				.build();
+	}
+
+	HttpRequest login(Shopper shopper) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+				.header("Content-Type", "application/json")
+				.POST(json("{\"username\":\"" + shopper.username + "\",\"password\":\"" + PASSWORD + "\"}"))
+				.build();
+	}
+
+	HttpRequest refresh(Shopper shopper) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/refresh"))
+				.header("Refresh-Token", shopper.refreshToken)
+				.POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+	}
+
+	private HttpRequest.Builder authorized(Shopper shopper, String path) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+		if (shopper.token != null) {
+			builder.header("Authorization", shopper.token);
+		}
+		return builder;
+	}
+
+	private static HttpRequest.BodyPublisher json(String body) {
+		return HttpRequest.BodyPublishers.ofString(body);
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.demo.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cache reads from several threads at once, as every authenticated request
+ * does against the token and user caches. One stripe is the single lock the
+ * cache used to have; compare it with the striped default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ExpiringLruCacheBenchmark {
+
+	private static final int KEYS = 4096;
+
+	@Param({ "1", "16" })
+	public int stripes;
+
+	private ExpiringLruCache<String, String> cache;
+	private String[] keys;
+
+	@Setup
+	public void setUp() {
+		cache = new ExpiringLruCache<>(10_000, System::currentTimeMillis, stripes);
+		keys = new String[KEYS];
+		long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = "user" + i;
+			cache.put(keys[i], keys[i], expiresAt);
+		}
+	}
+
+	@Benchmark
+	public String get() {
+		return cache.get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.demo.logging;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.Duration;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+/**
+ * Time a request thread spends logging an order, comparing the previous
+ * setup (pattern layout written synchronously to the file) with the
+ * current one (JSON written from a ring buffer, see logback-spring.xml).
+ * <p>
+ * {@code work} burns CPU between log calls to stand in for the rest of a
+ * request. With no work the async writer cannot keep up, so this measures
+ * saturated throughput; with work it measures the latency a caller sees
+ * while the buffer has room. In this benchmark the async appender blocks
+ * when the buffer is full instead of dropping, so dropped events cannot
+ * make it look faster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+	@Param({"sync", "async"})
+	public String pipeline;
+
+	@Param({"0", "2000"})
+	public int work;
+
+	private final BigDecimal total = new BigDecimal("5.98");
+	private Path directory;
+	private LoggerContext context;
+	private Logger log;
+	private long orderId;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("logging-benchmark");
+		context = new LoggerContext();
+		context.setMDCAdapter(new LogbackMDCAdapter());
+		context.start();
+
+		Appender<ILoggingEvent> appender;
+		if ("sync".equals(pipeline)) {
+			PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+			encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+			appender = file(encoder);
+		} else {
+			LoggingEventAsyncDisruptorAppender async = new LoggingEventAsyncDisruptorAppender();
+			async.setContext(context);
+			async.setRingBufferSize(8192);
+			async.setAppendTimeout(Duration.buildByMilliseconds(-1));
+			async.addAppender(file(new LogstashEncoder()));
+			async.start();
+			appender = async;
+		}
+
+		log = context.getLogger("com.example.demo.controllers.OrderController");
+		log.setLevel(Level.INFO);
+		log.setAdditive(false);
+		log.addAppender(appender);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		context.stop();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/** The call as it was written before: message built by concatenation. */
+	@Benchmark
+	public void concatenated() {
+		Blackhole.consumeCPU(work);
+		log.info("Order created for user: " + "alice");
+	}
+
+	/** The current call: parameterized with an event marker and fields. */
+	@Benchmark
+	public void structured() {
+		Blackhole.consumeCPU(work);
+		log.info(LogEvents.ORDER_SUBMITTED, "Order created {} {} {}", kv("orderId", ++orderId), kv("username", "alice"),
+				kv("total", total));
+	}
+
+	private FileAppender<ILoggingEvent> file(Encoder<ILoggingEvent> encoder) {
+		encoder.setContext(context);
+		encoder.start();
+		FileAppender<ILoggingEvent> appender = new FileAppender<>();
+		appender.setContext(context);
+		appender.setFile(directory.resolve("application.log").toString());
+		appender.setEncoder(encoder);
+		appender.start();
+		return appender;
+	}
+}
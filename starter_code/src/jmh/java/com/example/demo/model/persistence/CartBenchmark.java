@@ -0,0 +1,75 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * In-memory cart mutations and order creation on carts holding many distinct
+ * items, each line carrying {@code unitsPerLine} units.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int lines;
+
+	@Param({"1", "100"})
+	public int unitsPerLine;
+
+	private Cart cart;
+	private Item last;
+
+	@Setup
+	public void setUp() {
+		User user = new User();
+		user.setId(1L);
+		user.setUsername("benchmark");
+		cart = new Cart();
+		cart.setId(1L);
+		cart.setUser(user);
+		cart.setTotal(BigDecimal.ZERO);
+		for (long id = 1; id <= lines; id++) {
+			last = item(id);
+			cart.addItem(last, unitsPerLine);
+		}
+	}
+
+	// the last line is the worst case for a lookup by item
+	@Benchmark
+	public Cart addThenRemoveItem() {
+		cart.addItem(last);
+		cart.removeItem(last, 1);
+		return cart;
+	}
+
+	@Benchmark
+	public UserOrder createOrderFromCart() {
+		return UserOrder.createFromCart(cart);
+	}
+
+	static Item item(long id) {
+		Item item = new Item();
+		item.setId(id);
+		item.setName("Item " + id);
+		item.setDescription("Benchmark item number " + id);
+		item.setPrice(new BigDecimal("1.99"));
+		return item;
+	}
+}
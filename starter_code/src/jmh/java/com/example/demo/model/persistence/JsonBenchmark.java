@@ -0,0 +1,98 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Serializing carts and orders as entities, the way the controllers used to
+ * return them, and as the response records they return now, with an
+ * ObjectMapper configured like Spring Boot's, with and without Blackbird.
+ * Run with {@code -prof gc} for allocation per response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+	@Param({"10", "100"})
+	public int lines;
+
+	@Param({"1", "10"})
+	public int unitsPerLine;
+
+	@Param({"false", "true"})
+	public boolean blackbird;
+
+	private ObjectMapper objectMapper;
+	private Cart cart;
+	private UserOrder order;
+	private CartResponse cartResponse;
+	private OrderResponse orderResponse;
+
+	@Setup
+	public void setUp() {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		if (blackbird) {
+			builder.modulesToInstall(new BlackbirdModule());
+		}
+		objectMapper = builder.build();
+		User user = new User();
+		user.setId(1L);
+		user.setUsername("benchmark");
+		cart = new Cart();
+		cart.setId(1L);
+		cart.setUser(user);
+		cart.setTotal(BigDecimal.ZERO);
+		for (long id = 1; id <= lines; id++) {
+			cart.addItem(CartBenchmark.item(id), unitsPerLine);
+		}
+		order = UserOrder.createFromCart(cart);
+		order.setId(1L);
+		order.setCreatedAt(Instant.now());
+		cartResponse = CartResponse.of(cart, UserResponse.of(user));
+		orderResponse = OrderResponse.of(order, UserResponse.of(user));
+	}
+
+	@Benchmark
+	public byte[] serializeCart() throws Exception {
+		return objectMapper.writeValueAsBytes(cart);
+	}
+
+	@Benchmark
+	public byte[] serializeOrder() throws Exception {
+		return objectMapper.writeValueAsBytes(order);
+	}
+
+	@Benchmark
+	public byte[] serializeCartResponse() throws Exception {
+		return objectMapper.writeValueAsBytes(cartResponse);
+	}
+
+	@Benchmark
+	public byte[] serializeOrderResponse() throws Exception {
+		return objectMapper.writeValueAsBytes(orderResponse);
+	}
+}
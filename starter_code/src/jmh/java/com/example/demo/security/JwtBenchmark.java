@@ -0,0 +1,83 @@
+package com.example.demo.security;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.demo.cache.UserIdentity;
+
+import jakarta.servlet.FilterChain;
+
+/**
+ * Token signing as done on login and token verification as done on every
+ * authenticated request, both through the real filters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+	private static final FilterChain NO_OP = (request, response) -> { };
+
+	private JWTAuthenticationFilter signingFilter;
+	private JWTAuthenticationVerficationFilter verificationFilter;
+	private TokenVerificationCache tokenVerificationCache;
+	private Authentication authentication;
+	private MockHttpServletRequest authenticatedRequest;
+
+	@Setup
+	public void setUp() throws Exception {
+		TokenKeyRing keyRing = TokenKeyRing.generated("RS256");
+		signingFilter = new JWTAuthenticationFilter(auth -> auth, new TokenSigner(keyRing),
+				new LoginCredentialsParser(4096));
+		tokenVerificationCache = new TokenVerificationCache(null, keyRing, 10_000);
+		verificationFilter = new JWTAuthenticationVerficationFilter(auth -> auth, tokenVerificationCache,
+				new TokenRevocationList(100_000, 0.01));
+		authentication = new UsernamePasswordAuthenticationToken(
+				new ShopUserDetails(new UserIdentity(1L, "benchmark", "unused", 1L)), null, new ArrayList<>());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		signingFilter.successfulAuthentication(new MockHttpServletRequest(), response, NO_OP, authentication);
+		authenticatedRequest = new MockHttpServletRequest();
+		authenticatedRequest.addHeader(SecurityConstants.HEADER_STRING,
+				response.getHeader(SecurityConstants.HEADER_STRING));
+	}
+
+	@Benchmark
+	public String sign() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		signingFilter.successfulAuthentication(authenticatedRequest, response, NO_OP, authentication);
+		return response.getHeader(SecurityConstants.HEADER_STRING);
+	}
+
+	@Benchmark
+	public void verifyCached(Blackhole blackhole) throws Exception {
+		verificationFilter.doFilterInternal(authenticatedRequest, new MockHttpServletResponse(), NO_OP);
+		blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+	}
+
+	@Benchmark
+	public void verifyUncached(Blackhole blackhole) throws Exception {
+		tokenVerificationCache.getEntries().invalidateAll();
+		verificationFilter.doFilterInternal(authenticatedRequest, new MockHttpServletResponse(), NO_OP);
+		blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.security;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.persistence.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reading the credentials out of a login body: binding it into a {@link User}
+ * with a new {@code ObjectMapper} per login as the login filter used to, the
+ * same with a shared mapper, and the streaming {@link LoginCredentialsParser}.
+ * Run with {@code -prof gc} to compare allocation per login.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginParsingBenchmark {
+
+	private static final byte[] BODY = "{\"username\":\"benchmark\",\"password\":\"benchmark-password\"}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private final ObjectMapper sharedMapper = new ObjectMapper();
+	private final LoginCredentialsParser parser = new LoginCredentialsParser(4096);
+
+	@Benchmark
+	public String newObjectMapper() throws Exception {
+		return new ObjectMapper().readValue(new ByteArrayInputStream(BODY), User.class).getPassword();
+	}
+
+	@Benchmark
+	public String sharedObjectMapper() throws Exception {
+		return sharedMapper.readValue(new ByteArrayInputStream(BODY), User.class).getPassword();
+	}
+
+	@Benchmark
+	public String streamingParser() throws Exception {
+		return parser.parse(new ByteArrayInputStream(BODY)).getPassword();
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Signing and full signature verification (no cache) per token algorithm,
+ * using the verifier the key ring builds once per key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenAlgorithmBenchmark {
+
+	@Param({"HS512", "ES256", "RS256"})
+	public String algorithm;
+
+	private final AuthenticatedUser user = new AuthenticatedUser(1L, "benchmark", 1L);
+	private TokenKeyRing keyRing;
+	private TokenSigner signer;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		keyRing = TokenKeyRing.generated(algorithm);
+		signer = new TokenSigner(keyRing);
+		token = signer.sign(user);
+	}
+
+	@Benchmark
+	public String sign() {
+		return signer.sign(user);
+	}
+
+	@Benchmark
+	public DecodedJWT verify() {
+		DecodedJWT jwt = JWT.decode(token);
+		JWTVerifier verifier = keyRing.getVerifier(jwt.getKeyId());
+		return verifier.verify(jwt);
+	}
+}
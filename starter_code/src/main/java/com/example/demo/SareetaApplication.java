@@ -1,20 +1,39 @@
 package com.example.demo;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.example.demo.security.PooledBCryptPasswordEncoder;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
 @SpringBootApplication(exclude = {SecurityAutoConfiguration.class})
+@EnableScheduling
 public class SareetaApplication {
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder(){
-		return new BCryptPasswordEncoder();
+	public PooledBCryptPasswordEncoder bCryptPasswordEncoder(
+			@Value("${password.hashing.strength:10}") int strength,
+			@Value("${password.hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+			@Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+			@Value("${password.hashing.timeout:5s}") Duration timeout){
+		return new PooledBCryptPasswordEncoder(strength, threads, queueCapacity, timeout);
+	}
+	/**
+	 * Serializes and deserializes through generated lambdas instead of
+	 * reflection; Spring Boot adds every Module bean to its ObjectMapper.
+	 */
+	@Bean
+	public BlackbirdModule blackbirdModule() {
+		return new BlackbirdModule();
 	}
 	public static void main(String[] args) {
 		SpringApplication.run(SareetaApplication.class, args);
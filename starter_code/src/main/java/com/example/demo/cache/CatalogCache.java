@@ -0,0 +1,206 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory copy of the item catalog. Lookups by id, by name and by page are
+ * answered from an immutable, versioned snapshot that is rebuilt on a fixed
+ * interval and after any item is written, together with a full-text
+ * {@link ItemSearchIndex} over the same items. If the catalog grows past
+ * {@code catalog.cache.max-size} the cache steps aside and every lookup goes
+ * to {@link ItemRepository}.
+ */
+@Component
+public class CatalogCache implements MeterBinder {
+
+	private final ItemRepository itemRepository;
+	private final int maxSize;
+
+	private final ItemSearchIndex searchIndex = new ItemSearchIndex();
+	private final ReentrantLock refreshLock = new ReentrantLock();
+	private volatile Snapshot snapshot;
+	private volatile boolean stale = true;
+	private long version;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public CatalogCache(ItemRepository itemRepository,
+			@Value("${catalog.cache.max-size:10000}") int maxSize) {
+		this.itemRepository = itemRepository;
+		this.maxSize = maxSize;
+	}
+
+	public Optional<Item> findById(Long id) {
+		Snapshot current = current();
+		if (current.items == null) {
+			misses.increment();
+			return itemRepository.findById(id);
+		}
+		hits.increment();
+		return Optional.ofNullable(current.byId.get(id));
+	}
+
+	public List<Item> findByName(String name) {
+		Snapshot current = current();
+		if (current.items == null) {
+			misses.increment();
+			return itemRepository.findByName(name);
+		}
+		hits.increment();
+		return current.byName.getOrDefault(name, Collections.emptyList());
+	}
+
+	/**
+	 * Items whose name or description contains every word of the query, whole
+	 * or as a prefix, best matches first.
+	 */
+	public List<Item> search(String query, int limit) {
+		Snapshot current = current();
+		if (current.items == null) {
+			misses.increment();
+			return itemRepository.findByNameContainingIgnoreCase(query, Limit.of(limit));
+		}
+		hits.increment();
+		return searchIndex.search(query, limit);
+	}
+
+	/**
+	 * Up to {@code limit} items with an id greater than {@code afterId}, in id order.
+	 */
+	public List<Item> findPage(long afterId, int limit) {
+		Snapshot current = current();
+		if (current.items == null) {
+			misses.increment();
+			return itemRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+		}
+		hits.increment();
+		List<Item> items = current.items;
+		int low = 0;
+		int high = items.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (items.get(mid).getId() <= afterId) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return items.subList(low, Math.min(items.size(), low + limit));
+	}
+
+	/**
+	 * Marks the snapshot out of date; the next lookup rebuilds it.
+	 */
+	public void invalidate() {
+		stale = true;
+	}
+
+	@Scheduled(fixedDelayString = "${catalog.cache.refresh-interval:PT5M}",
+			initialDelayString = "${catalog.cache.refresh-interval:PT5M}")
+	public void refresh() {
+		refreshLock.lock();
+		try {
+			stale = false;
+			List<Item> items = itemRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(maxSize + 1));
+			if (items.size() > maxSize) {
+				searchIndex.clear();
+				snapshot = new Snapshot(++version, null);
+			} else {
+				searchIndex.update(items);
+				snapshot = new Snapshot(++version, new ArrayList<>(items));
+			}
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	public long getVersion() {
+		Snapshot current = snapshot;
+		return current == null ? 0 : current.version;
+	}
+
+	public Duration getStaleness() {
+		Snapshot current = snapshot;
+		return current == null ? Duration.ZERO : Duration.ofMillis(System.currentTimeMillis() - current.loadedAt);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("catalog.cache.hits", hits, LongAdder::sum).register(registry);
+		FunctionCounter.builder("catalog.cache.misses", misses, LongAdder::sum)
+				.description("Lookups sent to the database because the catalog is too large to cache")
+				.register(registry);
+		Gauge.builder("catalog.cache.hit.ratio", this, CatalogCache::hitRatio).register(registry);
+		Gauge.builder("catalog.cache.staleness", this, c -> c.getStaleness().toMillis() / 1000.0)
+				.description("Age of the snapshot currently being served").baseUnit("seconds").register(registry);
+		Gauge.builder("catalog.cache.version", this, CatalogCache::getVersion).register(registry);
+		Gauge.builder("catalog.cache.size", this, c -> {
+			Snapshot current = c.snapshot;
+			return current == null || current.items == null ? 0 : current.items.size();
+		}).register(registry);
+	}
+
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null || stale) {
+			refreshLock.lock();
+			try {
+				if (snapshot == null || stale) {
+					refresh();
+				}
+				current = snapshot;
+			} finally {
+				refreshLock.unlock();
+			}
+		}
+		return current;
+	}
+
+	private double hitRatio() {
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0 : (double) hit / total;
+	}
+
+	private static final class Snapshot {
+		private final long version;
+		private final long loadedAt = System.currentTimeMillis();
+		private final List<Item> items;
+		private final Map<Long, Item> byId = new HashMap<>();
+		private final Map<String, List<Item>> byName = new HashMap<>();
+
+		private Snapshot(long version, List<Item> items) {
+			this.version = version;
+			this.items = items == null ? null : Collections.unmodifiableList(items);
+			if (items != null) {
+				for (Item item : items) {
+					byId.put(item.getId(), item);
+					byName.computeIfAbsent(item.getName(), n -> new ArrayList<>()).add(item);
+				}
+			}
+		}
+	}
+}
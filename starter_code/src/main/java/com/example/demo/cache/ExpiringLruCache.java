@@ -0,0 +1,222 @@
+package com.example.demo.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded LRU map whose entries each carry their own expiry instant.
+ * Expired entries are dropped when they are read or when they reach the LRU
+ * end of a full cache, so the map never holds more than {@code maxSize} entries.
+ *
+ * <p>Keys are spread over independently locked stripes, each an access-ordered
+ * map with its share of {@code maxSize}, so concurrent reads of different keys
+ * rarely wait for each other. Recency is tracked per stripe: the entry evicted
+ * is the least recently used of its stripe, which approximates global LRU once
+ * every stripe holds a useful number of entries. Small caches use one stripe
+ * and are exact.
+ */
+public class ExpiringLruCache<K, V> {
+
+	static final int MAX_STRIPES = 16;
+	static final int MIN_ENTRIES_PER_STRIPE = 64;
+
+	private final int maxSize;
+	private final LongSupplier clock;
+	private final Stripe<K, V>[] stripes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	public ExpiringLruCache(int maxSize) {
+		this(maxSize, System::currentTimeMillis);
+	}
+
+	public ExpiringLruCache(int maxSize, LongSupplier clock) {
+		this(maxSize, clock, defaultStripes(maxSize));
+	}
+
+	@SuppressWarnings("unchecked")
+	ExpiringLruCache(int maxSize, LongSupplier clock, int stripeCount) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1 || stripeCount > maxSize) {
+			throw new IllegalArgumentException("stripeCount must be a power of two no larger than maxSize");
+		}
+		this.maxSize = maxSize;
+		this.clock = clock;
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new Stripe<>(maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0));
+		}
+	}
+
+	public V get(K key) {
+		Stripe<K, V> stripe = stripeFor(key);
+		stripe.lock.lock();
+		try {
+			Entry<V> entry = stripe.entries.get(key);
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			if (entry.expiresAt <= clock.getAsLong()) {
+				stripe.entries.remove(key);
+				expirations.increment();
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.value;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	public void put(K key, V value, long expiresAt) {
+		Stripe<K, V> stripe = stripeFor(key);
+		stripe.lock.lock();
+		try {
+			stripe.entries.put(key, new Entry<>(value, expiresAt));
+			if (stripe.entries.size() > stripe.maxSize) {
+				Iterator<Entry<V>> eldest = stripe.entries.values().iterator();
+				if (eldest.next().expiresAt <= clock.getAsLong()) {
+					expirations.increment();
+				} else {
+					evictions.increment();
+				}
+				eldest.remove();
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	public void invalidate(K key) {
+		Stripe<K, V> stripe = stripeFor(key);
+		stripe.lock.lock();
+		try {
+			stripe.entries.remove(key);
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	public void invalidateAll() {
+		for (Stripe<K, V> stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.entries.clear();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * The number of entries, summed stripe by stripe, so it is only exact
+	 * while nothing else writes.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe<K, V> stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.entries.size();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	int getStripeCount() {
+		return stripes.length;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getExpirations() {
+		return expirations.sum();
+	}
+
+	/**
+	 * Drops every expired entry. Reads already skip expired entries, so this
+	 * only exists to release memory held by entries nobody asks for again;
+	 * owners run it every {@code cache.clean-up-interval}.
+	 */
+	public void cleanUp() {
+		for (Stripe<K, V> stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				purgeExpired(stripe);
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	private void purgeExpired(Stripe<K, V> stripe) {
+		long now = clock.getAsLong();
+		Iterator<Entry<V>> it = stripe.entries.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().expiresAt <= now) {
+				it.remove();
+				expirations.increment();
+			}
+		}
+	}
+
+	private Stripe<K, V> stripeFor(K key) {
+		int h = key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * As many stripes as keep {@link #MIN_ENTRIES_PER_STRIPE} entries in each,
+	 * up to {@link #MAX_STRIPES}.
+	 */
+	static int defaultStripes(int maxSize) {
+		int stripes = Integer.highestOneBit(Math.max(1, maxSize / MIN_ENTRIES_PER_STRIPE));
+		return Math.min(stripes, MAX_STRIPES);
+	}
+
+	private static final class Stripe<K, V> {
+		private final int maxSize;
+		private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private Stripe(int maxSize) {
+			this.maxSize = maxSize;
+		}
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Read-through cache of {@link UserIdentity} keyed by username, shared by the
+ * security layer and the controllers so that a user named in a request is
+ * looked up in the database at most once per TTL.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+	private final UserRepository userRepository;
+	private final ExpiringLruCache<String, UserIdentity> identities;
+	private final long ttlMillis;
+
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+
+	public UserCache(UserRepository userRepository,
+			@Value("${user.cache.max-size:10000}") int maxSize,
+			@Value("${user.cache.ttl:5m}") Duration ttl) {
+		this.userRepository = userRepository;
+		this.identities = new ExpiringLruCache<>(maxSize);
+		this.ttlMillis = ttl.toMillis();
+	}
+
+	/**
+	 * Returns the identity of the named user, or {@code null} if there is no
+	 * such user. Unknown usernames are not cached.
+	 */
+	public UserIdentity get(String username) {
+		if (username == null) {
+			return null;
+		}
+		UserIdentity identity = identities.get(username);
+		if (identity != null) {
+			return identity;
+		}
+		long start = System.nanoTime();
+		User user = userRepository.findByUsername(username);
+		loads.increment();
+		loadNanos.add(System.nanoTime() - start);
+		if (user == null) {
+			return null;
+		}
+		identity = UserIdentity.of(user);
+		identities.put(username, identity, System.currentTimeMillis() + ttlMillis);
+		return identity;
+	}
+
+	public void invalidate(String username) {
+		identities.invalidate(username);
+	}
+
+	@Scheduled(fixedDelayString = "${cache.clean-up-interval:PT1M}",
+			initialDelayString = "${cache.clean-up-interval:PT1M}")
+	public void cleanUp() {
+		identities.cleanUp();
+	}
+
+	public void invalidateAll() {
+		identities.invalidateAll();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("user.cache.hits", identities, ExpiringLruCache::getHits).register(registry);
+		FunctionCounter.builder("user.cache.misses", identities, ExpiringLruCache::getMisses).register(registry);
+		FunctionCounter.builder("user.cache.evictions", identities, ExpiringLruCache::getEvictions).register(registry);
+		Gauge.builder("user.cache.size", identities, ExpiringLruCache::size).register(registry);
+		Gauge.builder("user.cache.hit.ratio", identities, UserCache::hitRatio).register(registry);
+		FunctionTimer.builder("user.cache.load", this, c -> c.loads.sum(), c -> c.loadNanos.sum(),
+				TimeUnit.NANOSECONDS)
+				.description("Time spent loading users from the database on a cache miss")
+				.register(registry);
+	}
+
+	private static double hitRatio(ExpiringLruCache<?, ?> cache) {
+		long hits = cache.getHits();
+		long total = hits + cache.getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+}
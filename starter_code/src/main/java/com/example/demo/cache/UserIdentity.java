@@ -0,0 +1,44 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * Immutable snapshot of the parts of a {@link User} needed to authenticate a
+ * request and find the user's cart. Safe to share between threads and
+ * requests, unlike the JPA entity it is copied from.
+ */
+public final class UserIdentity {
+
+	private final long id;
+	private final String username;
+	private final String password;
+	private final Long cartId;
+
+	public UserIdentity(long id, String username, String password, Long cartId) {
+		this.id = id;
+		this.username = username;
+		this.password = password;
+		this.cartId = cartId;
+	}
+
+	public static UserIdentity of(User user) {
+		return new UserIdentity(user.getId(), user.getUsername(), user.getPassword(),
+				user.getCart() == null ? null : user.getCart().getId());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public Long getCartId() {
+		return cartId;
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.demo.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.TokenSigner;
+import com.example.demo.security.TokenVerificationCache;
+
+import static com.example.demo.logging.LogEvents.AUTH_FAILURE;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Renews and revokes the tokens handed out on login. A refresh token is good
+ * for one new pair of tokens: refreshing revokes it, so a stolen refresh
+ * token that was already used is worthless. Logging out with a legacy token,
+ * which has no id to revoke, fails with 401 rather than pretending to work.
+ */
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+	private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
+	@Autowired
+	private TokenVerificationCache tokenVerificationCache;
+
+	@Autowired
+	private TokenRevocationList tokenRevocationList;
+
+	@Autowired
+	private TokenSigner tokenSigner;
+
+	@PostMapping("/refresh")
+	public ResponseEntity<Void> refresh(@RequestHeader(SecurityConstants.REFRESH_HEADER_STRING) String refreshToken,
+			HttpServletRequest req, HttpServletResponse res) {
+		AuthenticatedUser user = verifyRefreshToken(refreshToken);
+		if (user == null || !tokenRevocationList.revoke(user.getTokenId(), user.getExpiresAt())) {
+			log.warn(AUTH_FAILURE, "Refresh failed {} {} {}", kv("username", user == null ? null : user.getUsername()),
+					kv("reason", user == null ? "InvalidRefreshToken" : "RefreshTokenReused"),
+					kv("remoteAddr", req.getRemoteAddr()));
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		tokenSigner.issue(user, res);
+		return ResponseEntity.noContent().build();
+	}
+
+	@PostMapping("/logout")
+	public ResponseEntity<Void> logout(@AuthenticationPrincipal AuthenticatedUser user,
+			@RequestHeader(value = SecurityConstants.REFRESH_HEADER_STRING, required = false) String refreshToken) {
+		if (user.getTokenId() == null) {
+			log.warn(AUTH_FAILURE, "Logout failed {} {}", kv("username", user.getUsername()),
+					kv("reason", "TokenNotRevocable"));
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		tokenRevocationList.revoke(user.getTokenId(), user.getExpiresAt());
+		if (refreshToken != null) {
+			AuthenticatedUser refreshUser = verifyRefreshToken(refreshToken);
+			if (refreshUser != null && refreshUser.getId() == user.getId()) {
+				tokenRevocationList.revoke(refreshUser.getTokenId(), refreshUser.getExpiresAt());
+			}
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+	private AuthenticatedUser verifyRefreshToken(String refreshToken) {
+		try {
+			return tokenVerificationCache.verifyRefreshToken(refreshToken);
+		} catch (JWTVerificationException e) {
+			return null;
+		}
+	}
+}
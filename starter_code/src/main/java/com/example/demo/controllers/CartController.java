@@ -1,69 +1,83 @@
 package com.example.demo.controllers;
 
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cache.CatalogCache;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartUpdater;
+import com.example.demo.service.ShopMetrics;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
 	
 	@Autowired
-	private UserRepository userRepository;
+	private CartRepository cartRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private CatalogCache catalogCache;
 	
 	@Autowired
-	private ItemRepository itemRepository;
+	private CartUpdater cartUpdater;
 	
+	@Autowired
+	private ShopMetrics shopMetrics;
+	
+	/**
+	 * Adds to the cart and returns it by line; {@code expand=items} also lists
+	 * every unit, which costs as much as the quantity in the cart.
+	 */
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<CartResponse> addTocart(@RequestBody ModifyCartRequest request,
+			@RequestParam(required = false) String expand, @AuthenticationPrincipal AuthenticatedUser user) {
+		if(!user.is(request.getUsername()) || user.getCartId() == null) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = catalogCache.findById(request.getItemId());
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		if(!cartUpdater.addItems(user.getCartId(), item.get(), request.getQuantity())) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		return ResponseEntity.of(findCart(user, "items".equals(expand)));
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<CartResponse> removeFromcart(@RequestBody ModifyCartRequest request,
+			@RequestParam(required = false) String expand, @AuthenticationPrincipal AuthenticatedUser user) {
+		if(!user.is(request.getUsername()) || user.getCartId() == null) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
+		Optional<Item> item = catalogCache.findById(request.getItemId());
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		if(!cartUpdater.removeItems(user.getCartId(), item.get(), request.getQuantity())) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		return ResponseEntity.of(findCart(user, "items".equals(expand)));
+	}
+
+	private Optional<CartResponse> findCart(AuthenticatedUser user, boolean expandItems) {
+		Optional<Cart> cart = cartRepository.findWithLinesById(user.getCartId());
+		cart.ifPresent(shopMetrics::recordCart);
+		return cart.map(c -> CartResponse.of(c, new UserResponse(user.getId(), user.getUsername()), expandItems));
 	}
-		
 }
@@ -1,40 +1,136 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.cache.CatalogCache;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	public static final int MAX_PAGE_SIZE = 1000;
+	public static final int DEFAULT_SEARCH_LIMIT = 20;
+	public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private CatalogCache catalogCache;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
 	
+	/**
+	 * One page of the catalog in id order. When more items follow, a
+	 * {@code Link: rel="next"} header carries the cursor for the next page.
+	 */
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<List<Item>> getItems(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer size) {
+		int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<Item> items = catalogCache.findPage(after == null ? 0L : after, pageSize + 1);
+		if (items.size() <= pageSize) {
+			return ResponseEntity.ok(items);
+		}
+		items = items.subList(0, pageSize);
+		String next = "</api/item?after=" + items.get(pageSize - 1).getId() + "&size=" + pageSize + ">; rel=\"next\"";
+		return ResponseEntity.ok().header(HttpHeaders.LINK, next).body(items);
+	}
+
+	/**
+	 * The whole catalog, written item by item straight from a database cursor
+	 * so memory use does not depend on catalog size. Emits newline-delimited
+	 * JSON by default, or a single JSON array with {@code format=array}.
+	 */
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamItems(
+			@RequestParam(defaultValue = "ndjson") String format) {
+		boolean array = "array".equals(format);
+		StreamingResponseBody body = out -> transactionTemplate.executeWithoutResult(status -> {
+			try (Stream<Item> items = itemRepository.streamAll()) {
+				writeItems(items, out, array);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		return ResponseEntity.ok()
+				.contentType(array ? MediaType.APPLICATION_JSON : APPLICATION_NDJSON)
+				.body(body);
+	}
+	
+	/**
+	 * Case-insensitive search over item names and descriptions that matches
+	 * whole words and word prefixes, best matches first.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+			@RequestParam(required = false) Integer limit) {
+		int max = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		return ResponseEntity.ok(catalogCache.search(query, max));
 	}
 	
 	@GetMapping("/{id}")
 	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+		return ResponseEntity.of(catalogCache.findById(id));
 	}
 	
 	@GetMapping("/name/{name}")
 	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		List<Item> items = itemRepository.findByName(name);
+		List<Item> items = catalogCache.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
 				: ResponseEntity.ok(items);
 			
 	}
+
+	private void writeItems(Stream<Item> items, OutputStream out, boolean array) throws IOException {
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			if (array) {
+				generator.writeStartArray();
+			} else {
+				generator.setRootValueSeparator(null);
+			}
+			for (Item item : (Iterable<Item>) items::iterator) {
+				generator.writeObject(item);
+				if (!array) {
+					generator.writeRaw('\n');
+				}
+				// keep the persistence context from growing with the catalog
+				entityManager.detach(item);
+			}
+			if (array) {
+				generator.writeEndArray();
+			}
+		}
+	}
 	
 }
@@ -0,0 +1,42 @@
+package com.example.demo.controllers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenKey;
+import com.example.demo.security.TokenKeyRing;
+
+/**
+ * Publishes the public token keys as a JSON Web Key Set so other services can
+ * verify tokens without sharing a secret. Shared HS512 keys are never listed.
+ */
+@RestController
+public class JwksController {
+
+	@Autowired
+	private TokenKeyRing tokenKeyRing;
+
+	@GetMapping(SecurityConstants.JWKS_URL)
+	public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+		List<Map<String, Object>> keys = new ArrayList<>();
+		for (TokenKey key : tokenKeyRing.getKeys()) {
+			Map<String, Object> jwk = key.toJwk();
+			if (jwk != null) {
+				keys.add(jwk);
+			}
+		}
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+				.body(Collections.singletonMap("keys", keys));
+	}
+}
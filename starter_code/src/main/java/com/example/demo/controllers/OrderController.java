@@ -1,56 +1,154 @@
 package com.example.demo.controllers;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.example.demo.model.persistence.Cart;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.persistence.repositories.OrderSummary;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.OrderSubmission;
+import com.example.demo.service.OrderSubmissionQueue;
+import com.example.demo.service.ShopMetrics;
+
+import static com.example.demo.logging.LogEvents.ORDER_REJECTED;
+import static com.example.demo.logging.LogEvents.ORDER_SUBMITTED;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @RestController
 @RequestMapping("/api/order")
 public class OrderController {
 
+	public static final int DEFAULT_PAGE_SIZE = 20;
+	public static final int MAX_PAGE_SIZE = 100;
+
 	public static final Logger log = LoggerFactory.getLogger(OrderController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
+	private CartRepository cartRepository;
 	
 	@Autowired
 	private OrderRepository orderRepository;
 	
+	@Autowired
+	private OrderSubmissionQueue orderSubmissionQueue;
+	
+	@Autowired
+	private ShopMetrics shopMetrics;
+	
 	
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
-			log.error("Order failed. User " + username + " not found.");
+	public ResponseEntity<OrderResponse> submit(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		Optional<Cart> cart = findCart(user, username);
+		if(!cart.isPresent()) {
+			log.error(ORDER_REJECTED, "Order failed, user not found {}", kv("username", username));
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
+		UserOrder order = UserOrder.createFromCart(cart.get());
 		orderRepository.save(order);
-		log.info("Order created for user: " + username);
-		return ResponseEntity.ok(order);
+		shopMetrics.recordOrder(cart.get());
+		log.info(ORDER_SUBMITTED, "Order created {} {} {}", kv("orderId", order.getId()), kv("username", username),
+				kv("total", order.getTotal()));
+		return ResponseEntity.ok(OrderResponse.of(order, new UserResponse(user.getId(), user.getUsername())));
+	}
+	
+	/**
+	 * Queues the order to be persisted in the background and answers 202 with
+	 * a submission that can be polled at {@code /api/order/submission/{id}}.
+	 */
+	@PostMapping(value = "/submit/{username}", params = "async=true")
+	public ResponseEntity<OrderSubmission> submitAsync(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		Optional<Cart> cart = findCart(user, username);
+		if(!cart.isPresent()) {
+			log.error(ORDER_REJECTED, "Order failed, user not found {}", kv("username", username));
+			return ResponseEntity.notFound().build();
+		}
+		OrderSubmission submission = orderSubmissionQueue.submit(cart.get());
+		shopMetrics.recordOrder(cart.get());
+		log.info(ORDER_SUBMITTED, "Order queued {} {}", kv("submissionId", submission.getId()), kv("username", username));
+		return ResponseEntity.accepted()
+				.location(URI.create("/api/order/submission/" + submission.getId()))
+				.body(submission);
 	}
 	
+	@GetMapping("/submission/{id}")
+	public ResponseEntity<OrderSubmission> getSubmission(@PathVariable String id,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		OrderSubmission submission = orderSubmissionQueue.getStatus(id);
+		return ResponseEntity.ofNullable(submission == null || !user.is(submission.getUsername()) ? null : submission);
+	}
+	
+	/**
+	 * One page of the user's order history, newest first, as summaries without
+	 * line items. When older orders follow, a {@code Link: rel="next"} header
+	 * carries the cursor for the next page.
+	 */
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
+	public ResponseEntity<List<OrderSummary>> getOrdersForUser(@PathVariable String username,
+			@RequestParam(required = false) Long before, @RequestParam(required = false) Integer size,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		if(!user.is(username)) {
 			return ResponseEntity.notFound().build();
 		}
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<OrderSummary> orders = orderRepository.findSummaries(user.getId(),
+				before == null ? Long.MAX_VALUE : before, Limit.of(pageSize + 1));
+		if (orders.size() <= pageSize) {
+			return ResponseEntity.ok(orders);
+		}
+		orders = orders.subList(0, pageSize);
+		// usernames may hold characters that are not allowed in a URI as they are
+		String next = UriComponentsBuilder.fromPath("/api/order/history/{username}")
+				.queryParam("before", orders.get(pageSize - 1).getId())
+				.queryParam("size", pageSize)
+				.encode()
+				.buildAndExpand(username)
+				.toUriString();
+		return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(orders);
+	}
+	
+	/**
+	 * A single order of the user with all of its lines.
+	 */
+	@GetMapping("/history/{username}/{id}")
+	public ResponseEntity<OrderResponse> getOrder(@PathVariable String username, @PathVariable Long id,
+			@AuthenticationPrincipal AuthenticatedUser user) {
+		if(!user.is(username)) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.of(orderRepository.findWithLinesById(id)
+				.filter(order -> order.getUser().getId() == user.getId())
+				.map(order -> OrderResponse.of(order, new UserResponse(user.getId(), user.getUsername()))));
+	}
+	
+	/**
+	 * The caller's cart, by the id carried in their token; empty if the path
+	 * names somebody else.
+	 */
+	private Optional<Cart> findCart(AuthenticatedUser user, String username) {
+		return !user.is(username) || user.getCartId() == null ? Optional.empty()
+				: cartRepository.findWithLinesById(user.getCartId());
 	}
 }
@@ -1,17 +1,33 @@
 package com.example.demo.controllers;
 
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserIdentity;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.service.UserImporter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static com.example.demo.logging.LogEvents.USER_CREATED;
+import static com.example.demo.logging.LogEvents.USER_REJECTED;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @RestController
 @RequestMapping("/api/user")
@@ -23,43 +39,93 @@ public class UserController {
 	private UserRepository userRepository;
 
 	@Autowired
-	private CartRepository cartRepository;
+	private BCryptPasswordEncoder bCryptPasswordEncoder;
 
 	@Autowired
-	private BCryptPasswordEncoder bCryptPasswordEncoder;
+	private UserCache userCache;
+
+	@Autowired
+	private UserImporter userImporter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
 
 	@GetMapping("/id/{id}")
-	public ResponseEntity<User> findById(@PathVariable Long id) {
-		return ResponseEntity.of(userRepository.findById(id));
+	public ResponseEntity<UserResponse> findById(@PathVariable Long id) {
+		return ResponseEntity.of(userRepository.findById(id).map(UserResponse::of));
 	}
 
 	@GetMapping("/{username}")
-	public ResponseEntity<User> findByUserName(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user);
+	public ResponseEntity<UserResponse> findByUserName(@PathVariable String username) {
+		UserIdentity identity = userCache.get(username);
+		if (identity == null) {
+			return ResponseEntity.notFound().build();
+		}
+		// id and username are all a user is shown with, so answer from the cache
+		return ResponseEntity.ok(new UserResponse(identity.getId(), identity.getUsername()));
 	}
 
+	/**
+	 * Validates the request and hashes the password before touching the
+	 * database, then inserts the user and its cart (cascaded through
+	 * {@link User#getCart()}) in a single transaction.
+	 */
 	@PostMapping("/create")
-	public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
-		User user = new User();
-		user.setUsername(createUserRequest.getUsername());
-		Cart cart = new Cart();
-		cartRepository.save(cart);
-		user.setCart(cart);
+	public ResponseEntity<UserResponse> createUser(@RequestBody CreateUserRequest createUserRequest) {
 		// validation for password
-		if(createUserRequest.getPassword().length()<7 ||
+		if(createUserRequest.getPassword() == null || createUserRequest.getPassword().length()<7 ||
 				!createUserRequest.getPassword().equals(createUserRequest.getConfirmPassword())){
-			log.error("Bad password: " + createUserRequest.getPassword());
+			// never log the password itself
+			log.error(USER_REJECTED, "Signup rejected {} {}", kv("username", createUserRequest.getUsername()),
+					kv("reason", "bad_password"));
 			return ResponseEntity.badRequest().build();
 		}
+		User user = new User();
+		user.setUsername(createUserRequest.getUsername());
 		// Encode the password before saving
 		user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
+		Cart cart = new Cart();
+		cart.setUser(user);
+		user.setCart(cart);
+		// one transaction; hashing stays outside it so no connection is held while BCrypt runs
 		userRepository.save(user);
+		userCache.invalidate(user.getUsername());
 
-		log.info("User created with username: " + createUserRequest.getUsername());
-		return ResponseEntity.ok(user);
+		log.info(USER_CREATED, "User created {} {}", kv("userId", user.getId()), kv("username", user.getUsername()));
+		return ResponseEntity.ok(UserResponse.of(user));
 	}
 
+	/**
+	 * Bulk signup from CSV ({@code username,password,confirmPassword}) or
+	 * newline-delimited JSON records shaped like {@link CreateUserRequest}.
+	 * Streams back one NDJSON result per record as each chunk commits, then a
+	 * final {@code {"summary": ...}} line with counts and throughput. Answers
+	 * 404 unless {@code user.import.enabled} is set.
+	 */
+	@PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"},
+			produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> importUsers(
+			@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+		if (!userImporter.isEnabled()) {
+			return ResponseEntity.notFound().build();
+		}
+		boolean csv = "csv".equals(contentType.getSubtype());
+		StreamingResponseBody stream = out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				generator.setRootValueSeparator(null);
+				Iterator<CreateUserRequest> records = csv ? userImporter.readCsv(body) : userImporter.readNdjson(body);
+				UserImporter.Summary summary = userImporter.importUsers(records, results -> {
+					for (UserImporter.Result result : results) {
+						generator.writeObject(result);
+						generator.writeRaw('\n');
+					}
+					generator.flush();
+				});
+				generator.writeObject(Collections.singletonMap("summary", summary));
+				generator.writeRaw('\n');
+			}
+		};
+		return ResponseEntity.ok().contentType(ItemController.APPLICATION_NDJSON).body(stream);
+	}
 
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.example.demo.logging;
+
+import org.slf4j.Marker;
+
+import net.logstash.logback.marker.Markers;
+
+/**
+ * Markers for the business events the JSON log carries as an {@code event}
+ * field, so they can be searched without parsing the message text. Details
+ * are attached with {@link net.logstash.logback.argument.StructuredArguments}.
+ * <p>
+ * Each marker is created once and shared; never call {@code add} or
+ * {@code and} on them.
+ */
+public final class LogEvents {
+
+	public static final Marker USER_CREATED = Markers.append("event", "user_created");
+	public static final Marker USER_REJECTED = Markers.append("event", "user_rejected");
+	public static final Marker ORDER_SUBMITTED = Markers.append("event", "order_submitted");
+	public static final Marker ORDER_REJECTED = Markers.append("event", "order_rejected");
+	public static final Marker AUTH_FAILURE = Markers.append("event", "auth_failure");
+
+	private LogEvents() {
+	}
+}
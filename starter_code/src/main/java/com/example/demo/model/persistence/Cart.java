@@ -4,31 +4,35 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "cart")
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+    private List<CartLine> lines = new ArrayList<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
@@ -37,6 +41,10 @@ public class Cart {
 	@Column
 	@JsonProperty
 	private BigDecimal total;
+
+	@Version
+	@JsonIgnore
+	private long version;
 	
 	public BigDecimal getTotal() {
 		return total;
@@ -46,6 +54,14 @@ public class Cart {
 		this.total = total;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 	public User getUser() {
 		return user;
 	}
@@ -62,33 +78,86 @@ public class Cart {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<CartLine> getLines() {
+		return lines;
+	}
+
+	public void setLines(List<CartLine> lines) {
+		this.lines = lines;
 	}
 
+	/**
+	 * Replaces the lines with one unit per entry, the shape carts were built
+	 * from before they were stored as lines. There is no matching getter:
+	 * listing every unit costs as much as the quantity, read the lines.
+	 */
 	public void setItems(List<Item> items) {
-		this.items = items;
+		lines.clear();
+		for (Item item : items) {
+			CartLine line = findLine(item);
+			if (line == null) {
+				lines.add(new CartLine(this, item, 1));
+			} else {
+				line.setQuantity(line.getQuantity() + 1);
+			}
+		}
 	}
 	
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	public void addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
+		}
+		CartLine line = findLine(item);
+		if(line == null) {
+			lines.add(new CartLine(this, item, quantity));
+		} else {
+			line.setQuantity(line.getQuantity() + quantity);
 		}
-		items.add(item);
 		if(total == null) {
 			total = new BigDecimal(0);
 		}
-		total = total.add(item.getPrice());
+		total = total.add(item.getPrice().multiply(BigDecimal.valueOf(quantity)));
 	}
 	
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	/**
+	 * Removes up to {@code quantity} units of the item and returns how many
+	 * were actually in the cart to remove.
+	 */
+	public int removeItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return 0;
+		}
+		CartLine line = findLine(item);
+		if(line == null) {
+			return 0;
+		}
+		int removed = Math.min(quantity, line.getQuantity());
+		if(removed == line.getQuantity()) {
+			lines.remove(line);
+		} else {
+			line.setQuantity(line.getQuantity() - removed);
 		}
-		items.remove(item);
 		if(total == null) {
 			total = new BigDecimal(0);
 		}
-		total = total.subtract(item.getPrice());
+		total = total.subtract(item.getPrice().multiply(BigDecimal.valueOf(removed)));
+		return removed;
+	}
+
+	private CartLine findLine(Item item) {
+		for (CartLine line : lines) {
+			if (line.getItem().equals(item)) {
+				return line;
+			}
+		}
+		return null;
 	}
 }
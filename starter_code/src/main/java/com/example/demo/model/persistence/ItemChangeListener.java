@@ -0,0 +1,44 @@
+package com.example.demo.model.persistence;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.cache.CatalogCache;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Invalidates the {@link CatalogCache} whenever an item is written, once the
+ * write has committed so readers never rebuild from uncommitted rows.
+ */
+public class ItemChangeListener {
+
+	private final ObjectProvider<CatalogCache> catalogCache;
+
+	public ItemChangeListener(ObjectProvider<CatalogCache> catalogCache) {
+		this.catalogCache = catalogCache;
+	}
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void itemChanged(Item item) {
+		CatalogCache cache = catalogCache.getIfAvailable();
+		if (cache == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					cache.invalidate();
+				}
+			});
+		} else {
+			cache.invalidate();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * One line of a placed order: the item as it was at purchase time and how
+ * many units were bought. Lines are copied from the cart and never change, so
+ * later catalog edits do not rewrite order history.
+ */
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String name;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private BigDecimal price;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(Long itemId, String name, int quantity, BigDecimal price) {
+		this.itemId = itemId;
+		this.name = name;
+		this.quantity = quantity;
+		this.price = price;
+	}
+
+	public static OrderLine of(CartLine line) {
+		Item item = line.getItem();
+		return new OrderLine(item.getId(), item.getName(), line.getQuantity(), item.getPrice());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	@JsonIgnore
+	public BigDecimal getSubtotal() {
+		return price.multiply(BigDecimal.valueOf(quantity));
+	}
+}
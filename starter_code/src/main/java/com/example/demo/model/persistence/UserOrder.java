@@ -1,19 +1,23 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import jakarta.persistence.CascadeType;
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -23,15 +27,17 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	@ElementCollection
+	@CollectionTable(name = "user_order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@OrderColumn(name = "line_number")
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<OrderLine> lines = new ArrayList<>();
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
@@ -41,6 +47,10 @@ public class UserOrder {
 	@JsonProperty
 	@Column
 	private BigDecimal total;
+	
+	@JsonProperty
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +60,12 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
 	}
 
 	public User getUser() {
@@ -74,9 +84,24 @@ public class UserOrder {
 		this.total = total;
 	}
 
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@PrePersist
+	void onCreate() {
+		if (createdAt == null) {
+			createdAt = Instant.now();
+		}
+	}
+
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
+		order.setLines(cart.getLines().stream().map(OrderLine::of).collect(Collectors.toList()));
 		order.setTotal(cart.getTotal());
 		order.setUser(cart.getUser());
 		return order;
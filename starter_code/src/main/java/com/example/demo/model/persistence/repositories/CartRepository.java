@@ -1,13 +1,102 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * A cart together with its user and its lines with their items, loaded in
+	 * one query.
+	 */
+	@Query("select c from Cart c left join fetch c.user left join fetch c.lines l left join fetch l.item where c.id = :id")
+	Optional<Cart> findWithLinesById(long id);
+
+	/**
+	 * Adds units of an item to a cart with one update of the cart total and one
+	 * update (or insert) of the item's line, without loading the cart.
+	 *
+	 * @return false if there is no cart with the given id
+	 * @throws OptimisticLockingFailureException if the cart changed concurrently
+	 */
+	@Transactional
+	default boolean addItems(Long cartId, Item item, int quantity) {
+		Long version = findVersion(cartId);
+		if (version == null || quantity <= 0) {
+			return version != null;
+		}
+		if (addToTotal(cartId, version, item.getPrice().multiply(BigDecimal.valueOf(quantity))) == 0) {
+			throw new OptimisticLockingFailureException("Cart " + cartId + " was modified concurrently");
+		}
+		if (addToLine(cartId, item.getId(), quantity) == 0) {
+			insertLine(cartId, item.getId(), quantity);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes up to {@code quantity} units of an item from a cart, deleting the
+	 * line once it is empty, without loading the cart.
+	 *
+	 * @return false if there is no cart with the given id
+	 * @throws OptimisticLockingFailureException if the cart changed concurrently
+	 */
+	@Transactional
+	default boolean removeItems(Long cartId, Item item, int quantity) {
+		Long version = findVersion(cartId);
+		Integer current = version == null ? null : findLineQuantity(cartId, item.getId());
+		if (current == null || quantity <= 0) {
+			return version != null;
+		}
+		int removed = Math.min(quantity, current);
+		// the version check also proves the line quantity read above is still current
+		if (addToTotal(cartId, version, item.getPrice().multiply(BigDecimal.valueOf(-removed))) == 0) {
+			throw new OptimisticLockingFailureException("Cart " + cartId + " was modified concurrently");
+		}
+		if (removed == current) {
+			deleteLine(cartId, item.getId());
+		} else {
+			addToLine(cartId, item.getId(), -removed);
+		}
+		return true;
+	}
+
+	@Query("select c.version from Cart c where c.id = :cartId")
+	Long findVersion(@Param("cartId") Long cartId);
+
+	@Query("select l.quantity from CartLine l where l.cart.id = :cartId and l.item.id = :itemId")
+	Integer findLineQuantity(@Param("cartId") Long cartId, @Param("itemId") Long itemId);
+
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update Cart c set c.total = coalesce(c.total, 0) + :amount, c.version = c.version + 1"
+			+ " where c.id = :cartId and c.version = :version")
+	int addToTotal(@Param("cartId") Long cartId, @Param("version") long version, @Param("amount") BigDecimal amount);
+
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update CartLine l set l.quantity = l.quantity + :quantity where l.cart.id = :cartId and l.item.id = :itemId")
+	int addToLine(@Param("cartId") Long cartId, @Param("itemId") Long itemId, @Param("quantity") int quantity);
+
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("insert into CartLine (cart, item, quantity) select c, i, :quantity from Cart c, Item i"
+			+ " where c.id = :cartId and i.id = :itemId")
+	int insertLine(@Param("cartId") Long cartId, @Param("itemId") Long itemId, @Param("quantity") int quantity);
+
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from CartLine l where l.cart.id = :cartId and l.item.id = :itemId")
+	int deleteLine(@Param("cartId") Long cartId, @Param("itemId") Long itemId);
 }
@@ -1,14 +1,37 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Item;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	List<Item> findByName(String name);
 
+	List<Item> findByNameContainingIgnoreCase(String name, Limit limit);
+
+	/**
+	 * Keyset page of the catalog: the first {@code limit} items whose id is
+	 * greater than {@code afterId}, in id order.
+	 */
+	List<Item> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+
+	/**
+	 * Whole catalog as a database cursor. Must be consumed inside a
+	 * transaction and closed afterwards.
+	 */
+	@Query("select i from Item i order by i.id")
+	@QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "256"))
+	Stream<Item> streamAll();
+
 }
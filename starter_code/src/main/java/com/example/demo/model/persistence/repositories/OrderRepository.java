@@ -1,8 +1,11 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
@@ -11,4 +14,19 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	/**
+	 * Keyset page of a user's order history, newest first: the first
+	 * {@code limit} orders whose id is less than {@code beforeId}.
+	 */
+	@Query("select o.id as id, o.total as total, o.createdAt as createdAt, "
+			+ "(select coalesce(sum(l.quantity), 0) from UserOrder o2 join o2.lines l where o2 = o) as itemCount "
+			+ "from UserOrder o where o.user.id = :userId and o.id < :beforeId order by o.id desc")
+	List<OrderSummary> findSummaries(long userId, long beforeId, Limit limit);
+
+	/**
+	 * A single order together with its lines and user, loaded in one query.
+	 */
+	@Query("select o from UserOrder o join fetch o.user left join fetch o.lines where o.id = :id")
+	Optional<UserOrder> findWithLinesById(long id);
 }
@@ -0,0 +1,19 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Closed projection of a {@link com.example.demo.model.persistence.UserOrder}
+ * for order history: enough to list orders without loading their lines or user.
+ */
+public interface OrderSummary {
+
+	Long getId();
+
+	BigDecimal getTotal();
+
+	int getItemCount();
+
+	Instant getCreatedAt();
+}
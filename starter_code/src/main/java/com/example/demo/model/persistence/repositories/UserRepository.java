@@ -1,6 +1,10 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
@@ -8,4 +12,10 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 	User findByUsername(String username);
+
+	/**
+	 * Which of the given usernames are already taken.
+	 */
+	@Query("select u.username from User u where u.username in :usernames")
+	List<String> findUsernamesIn(Collection<String> usernames);
 }
@@ -0,0 +1,47 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A cart as the cart endpoints return it, copied out of a {@link Cart} whose
+ * lines and items were already loaded, so serializing it never reaches back
+ * into the persistence context. The user is passed in rather than read from
+ * the cart.
+ * <p>
+ * {@code items}, one entry per unit as carts were exposed before they were
+ * stored as lines, grows with the quantity rather than the number of lines.
+ * It is only filled in when asked for and is left out of the JSON otherwise.
+ */
+public record CartResponse(Long id, List<Line> lines, UserResponse user, BigDecimal total,
+		@Deprecated @JsonInclude(JsonInclude.Include.NON_NULL) List<ItemResponse> items) {
+
+	public record Line(ItemResponse item, int quantity) {
+	}
+
+	public static CartResponse of(Cart cart, UserResponse user) {
+		return of(cart, user, false);
+	}
+
+	public static CartResponse of(Cart cart, UserResponse user, boolean expandItems) {
+		List<Line> lines = new ArrayList<>(cart.getLines().size());
+		for (CartLine line : cart.getLines()) {
+			lines.add(new Line(ItemResponse.of(line.getItem()), line.getQuantity()));
+		}
+		return new CartResponse(cart.getId(), lines, user, cart.getTotal(), expandItems ? expand(lines) : null);
+	}
+
+	private static List<ItemResponse> expand(List<Line> lines) {
+		List<ItemResponse> items = new ArrayList<>();
+		for (Line line : lines) {
+			items.addAll(Collections.nCopies(line.quantity(), line.item()));
+		}
+		return items;
+	}
+}
@@ -0,0 +1,12 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Item;
+
+public record ItemResponse(Long id, String name, BigDecimal price, String description) {
+
+	public static ItemResponse of(Item item) {
+		return new ItemResponse(item.getId(), item.getName(), item.getPrice(), item.getDescription());
+	}
+}
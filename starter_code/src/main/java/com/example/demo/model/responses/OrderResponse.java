@@ -0,0 +1,28 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * An order with all of its lines, copied out of a {@link UserOrder} whose
+ * lines were already loaded. The user is passed in rather than read from the
+ * order.
+ */
+public record OrderResponse(Long id, List<Line> lines, UserResponse user, BigDecimal total, Instant createdAt) {
+
+	public record Line(Long itemId, String name, int quantity, BigDecimal price) {
+	}
+
+	public static OrderResponse of(UserOrder order, UserResponse user) {
+		List<Line> lines = new ArrayList<>(order.getLines().size());
+		for (OrderLine line : order.getLines()) {
+			lines.add(new Line(line.getItemId(), line.getName(), line.getQuantity(), line.getPrice()));
+		}
+		return new OrderResponse(order.getId(), lines, user, order.getTotal(), order.getCreatedAt());
+	}
+}
@@ -0,0 +1,13 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * A user as the API shows it: never the password hash or the cart.
+ */
+public record UserResponse(long id, String username) {
+
+	public static UserResponse of(User user) {
+		return new UserResponse(user.getId(), user.getUsername());
+	}
+}
@@ -0,0 +1,189 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * Inverted index over item names and descriptions. Every lower-cased token
+ * maps to the ids of the items containing it, held in a sorted map so that a
+ * prefix resolves to a contiguous range of tokens.
+ *
+ * <p>Searches may run concurrently with each other and with {@link #update};
+ * updates must be serialized by the caller.
+ */
+public class ItemSearchIndex {
+
+	private static final int NAME_WEIGHT = 10;
+	private static final int DESCRIPTION_WEIGHT = 2;
+	private static final int EXACT_TOKEN_BONUS = 2;
+	private static final int NAME_PREFIX_BONUS = 20;
+	private static final int EXACT_NAME_BONUS = 100;
+
+	private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+	private final Map<Long, Indexed> items = new ConcurrentHashMap<>();
+
+	/**
+	 * Brings the index in line with the given catalog, touching only the items
+	 * that were added, removed or had their name or description changed.
+	 */
+	public void update(Collection<Item> catalog) {
+		Set<Long> seen = new HashSet<>();
+		for (Item item : catalog) {
+			seen.add(item.getId());
+			Indexed current = items.get(item.getId());
+			if (current != null && Objects.equals(current.item.getName(), item.getName())
+					&& Objects.equals(current.item.getDescription(), item.getDescription())) {
+				items.put(item.getId(), new Indexed(item, current.weights));
+				continue;
+			}
+			if (current != null) {
+				unindex(current);
+			}
+			index(item);
+		}
+		for (Long id : new ArrayList<>(items.keySet())) {
+			if (!seen.contains(id)) {
+				unindex(items.get(id));
+			}
+		}
+	}
+
+	public void clear() {
+		postings.clear();
+		items.clear();
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Items matching every token of the query, either exactly or as a prefix,
+	 * ordered by relevance. Name matches outrank description matches, exact
+	 * tokens outrank prefixes, and whole-name matches come first.
+	 */
+	public List<Item> search(String query, int limit) {
+		List<String> terms = tokenize(query);
+		if (terms.isEmpty() || limit <= 0) {
+			return new ArrayList<>();
+		}
+		Map<Long, Integer> scores = null;
+		for (String term : terms) {
+			Map<Long, Integer> termScores = new HashMap<>();
+			ConcurrentNavigableMap<String, Map<Long, Integer>> range = postings.subMap(term, true,
+					term + Character.MAX_VALUE, true);
+			for (Map.Entry<String, Map<Long, Integer>> posting : range.entrySet()) {
+				int bonus = posting.getKey().equals(term) ? EXACT_TOKEN_BONUS : 1;
+				for (Map.Entry<Long, Integer> hit : posting.getValue().entrySet()) {
+					termScores.merge(hit.getKey(), hit.getValue() * bonus, Math::max);
+				}
+			}
+			if (scores == null) {
+				scores = termScores;
+			} else {
+				scores.keySet().retainAll(termScores.keySet());
+				for (Map.Entry<Long, Integer> score : scores.entrySet()) {
+					score.setValue(score.getValue() + termScores.get(score.getKey()));
+				}
+			}
+			if (scores.isEmpty()) {
+				return new ArrayList<>();
+			}
+		}
+		String phrase = query.trim().toLowerCase(Locale.ROOT);
+		List<Ranked> ranked = new ArrayList<>(scores.size());
+		for (Map.Entry<Long, Integer> score : scores.entrySet()) {
+			Indexed indexed = items.get(score.getKey());
+			if (indexed == null) {
+				continue;
+			}
+			int total = score.getValue();
+			String name = indexed.item.getName() == null ? "" : indexed.item.getName().toLowerCase(Locale.ROOT);
+			if (name.equals(phrase)) {
+				total += EXACT_NAME_BONUS;
+			} else if (name.startsWith(phrase)) {
+				total += NAME_PREFIX_BONUS;
+			}
+			ranked.add(new Ranked(indexed.item, total));
+		}
+		ranked.sort(Comparator.comparingInt((Ranked r) -> r.score).reversed()
+				.thenComparing(r -> r.item.getId()));
+		List<Item> results = new ArrayList<>(Math.min(limit, ranked.size()));
+		for (int i = 0; i < ranked.size() && i < limit; i++) {
+			results.add(ranked.get(i).item);
+		}
+		return results;
+	}
+
+	static List<String> tokenize(String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		if (text != null) {
+			for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+				if (!token.isEmpty()) {
+					tokens.add(token);
+				}
+			}
+		}
+		return new ArrayList<>(tokens);
+	}
+
+	private void index(Item item) {
+		Map<String, Integer> weights = new HashMap<>();
+		for (String token : tokenize(item.getDescription())) {
+			weights.merge(token, DESCRIPTION_WEIGHT, Math::max);
+		}
+		for (String token : tokenize(item.getName())) {
+			weights.merge(token, NAME_WEIGHT, Math::max);
+		}
+		items.put(item.getId(), new Indexed(item, weights));
+		for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+			postings.computeIfAbsent(weight.getKey(), t -> new ConcurrentHashMap<>())
+					.put(item.getId(), weight.getValue());
+		}
+	}
+
+	private void unindex(Indexed indexed) {
+		Long id = indexed.item.getId();
+		items.remove(id);
+		for (String token : indexed.weights.keySet()) {
+			postings.computeIfPresent(token, (t, ids) -> {
+				ids.remove(id);
+				return ids.isEmpty() ? null : ids;
+			});
+		}
+	}
+
+	private static final class Indexed {
+		private final Item item;
+		private final Map<String, Integer> weights;
+
+		private Indexed(Item item, Map<String, Integer> weights) {
+			this.item = item;
+			this.weights = weights;
+		}
+	}
+
+	private static final class Ranked {
+		private final Item item;
+		private final int score;
+
+		private Ranked(Item item, int score) {
+			this.item = item;
+			this.score = score;
+		}
+	}
+}
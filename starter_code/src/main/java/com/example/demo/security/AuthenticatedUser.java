@@ -0,0 +1,75 @@
+package com.example.demo.security;
+
+import java.security.Principal;
+
+/**
+ * The principal of a request authenticated by token. Its ids come from the
+ * token's signed claims, so controllers can go straight to the user's rows
+ * by primary key without looking the user up first. The token's id and
+ * expiry travel along so the token can be revoked, see
+ * {@link TokenRevocationList}.
+ */
+public final class AuthenticatedUser implements Principal {
+
+    private final long id;
+    private final String username;
+    private final Long cartId;
+    private final String tokenId;
+    private final long expiresAt;
+
+    public AuthenticatedUser(long id, String username, Long cartId) {
+        this(id, username, cartId, null, 0L);
+    }
+
+    public AuthenticatedUser(long id, String username, Long cartId, String tokenId, long expiresAt) {
+        this.id = id;
+        this.username = username;
+        this.cartId = cartId;
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    /**
+     * The {@code jti} of the token this principal came from, or null for
+     * tokens issued before tokens had ids.
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * When the token this principal came from expires, in epoch millis.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Whether this principal is the user named in a request path or body.
+     */
+    public boolean is(String username) {
+        return this.username.equals(username);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
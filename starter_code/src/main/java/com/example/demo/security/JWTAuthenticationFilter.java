@@ -1,12 +1,12 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
-import com.example.demo.model.persistence.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -15,34 +15,61 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static com.example.demo.logging.LogEvents.AUTH_FAILURE;
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JWTAuthenticationFilter.class);
+
 	 private final AuthenticationManager authenticationManager;
+    private final TokenSigner tokenSigner;
+    private final LoginCredentialsParser credentialsParser;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, TokenSigner tokenSigner,
+            LoginCredentialsParser credentialsParser) {
         this.authenticationManager = authenticationManager;
+        this.tokenSigner = tokenSigner;
+        this.credentialsParser = credentialsParser;
     }
     
     @Override
     public Authentication attemptAuthentication(HttpServletRequest req,
                                                 HttpServletResponse res) throws AuthenticationException {
     	try {
-    		User credentials = new ObjectMapper()
-                    .readValue(req.getInputStream(), User.class);
+    		LoginCredentials credentials = credentialsParser.parse(req);
     		
-    		return authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            credentials.getUsername(),
-                            credentials.getPassword(),
-                            new ArrayList<>()));
+    		try {
+    			return authenticationManager.authenticate(
+    					new UsernamePasswordAuthenticationToken(
+    							credentials.getUsername(),
+    							credentials.getPassword(),
+    							new ArrayList<>()));
+    		} catch (AuthenticationException e) {
+    			log.warn(AUTH_FAILURE, "Login failed {} {} {}", kv("username", credentials.getUsername()),
+    					kv("reason", e.getClass().getSimpleName()), kv("remoteAddr", req.getRemoteAddr()));
+    			throw e;
+    		}
+    	} catch (PasswordHashingRejectedException e) {
+    		res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    		res.setHeader("Retry-After", "1");
+    		return null;
+    	} catch (LoginBodyTooLargeException e) {
+    		rejectBody(req, res, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "body_too_large");
+    		return null;
+    	} catch (JsonProcessingException e) {
+    		rejectBody(req, res, HttpServletResponse.SC_BAD_REQUEST, "malformed_body");
+    		return null;
     	} catch (IOException e) {
     		throw new RuntimeException(e);
     	}
     }
+
+    private static void rejectBody(HttpServletRequest req, HttpServletResponse res, int status, String reason) {
+    	log.warn(AUTH_FAILURE, "Login rejected {} {}", kv("reason", reason), kv("remoteAddr", req.getRemoteAddr()));
+    	res.setStatus(status);
+    }
     
     @Override
     protected void successfulAuthentication(HttpServletRequest req,
@@ -50,10 +77,6 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        String token = JWT.create()
-                .withSubject(((org.springframework.security.core.userdetails.User) auth.getPrincipal()).getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
-                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
-        res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        tokenSigner.issue(((ShopUserDetails) auth.getPrincipal()).toAuthenticatedUser(), res);
     }
 }
@@ -1,10 +1,12 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,13 +16,17 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
 @Component
 public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilter {
+
+    private final TokenVerificationCache tokenVerificationCache;
+    private final TokenRevocationList tokenRevocationList;
 	
-	public JWTAuthenticationVerficationFilter(AuthenticationManager authManager) {
+	public JWTAuthenticationVerficationFilter(AuthenticationManager authManager,
+            TokenVerificationCache tokenVerificationCache, TokenRevocationList tokenRevocationList) {
         super(authManager);
+        this.tokenVerificationCache = tokenVerificationCache;
+        this.tokenRevocationList = tokenRevocationList;
     }
 	
 	@Override
@@ -33,7 +39,18 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
             return;
         }
 
-        UsernamePasswordAuthenticationToken authentication = getAuthentication(req);
+        UsernamePasswordAuthenticationToken authentication;
+        try {
+            authentication = getAuthentication(req);
+        } catch (JWTVerificationException e) {
+            // expired or malformed: tell the client to refresh or log in again rather than answer 403
+            SecurityContextHolder.clearContext();
+            String error = e instanceof TokenExpiredException ? "The access token expired" : "The access token is invalid";
+            res.setHeader(HttpHeaders.WWW_AUTHENTICATE,
+                    "Bearer error=\"invalid_token\", error_description=\"" + error + "\"");
+            res.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         chain.doFilter(req, res);
@@ -42,10 +59,8 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
 	private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest req) {
 		String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
-            String user = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
-            if (user != null) {
+            AuthenticatedUser user = tokenVerificationCache.verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""));
+            if (user != null && !tokenRevocationList.isRevoked(user.getTokenId())) {
                 return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
             }
             return null;
@@ -0,0 +1,33 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count and total time of an operation on a hot path, kept in adders so that
+ * recording never contends, and published as a {@link FunctionTimer}.
+ */
+class LatencyStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    void record(long elapsedNanos) {
+        count.increment();
+        nanos.add(elapsedNanos);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    void bindTo(MeterRegistry registry, String name, String description, String... tags) {
+        FunctionTimer.builder(name, this, s -> s.count.sum(), s -> s.nanos.sum(), TimeUnit.NANOSECONDS)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+}
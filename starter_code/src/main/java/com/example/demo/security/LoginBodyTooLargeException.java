@@ -0,0 +1,14 @@
+package com.example.demo.security;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a login request body is longer than
+ * {@code security.login.max-body-size}, whether it declared its length or not.
+ */
+public class LoginBodyTooLargeException extends IOException {
+
+    public LoginBodyTooLargeException(long maxBodySize) {
+        super("Login request body exceeds " + maxBodySize + " bytes");
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.security;
+
+/**
+ * The username and password of a login request, and nothing else from its
+ * body.
+ */
+public final class LoginCredentials {
+
+    private final String username;
+    private final String password;
+
+    public LoginCredentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
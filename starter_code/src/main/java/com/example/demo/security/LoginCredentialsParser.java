@@ -0,0 +1,119 @@
+package com.example.demo.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the username and password out of a login request body with a
+ * streaming parser straight off the request stream, without a databinding
+ * {@code ObjectMapper} or an entity to bind into. Other fields are skipped.
+ * <p>
+ * Bodies longer than {@code security.login.max-body-size} are rejected with
+ * a {@link LoginBodyTooLargeException}: up front when the request declares
+ * its length, otherwise as soon as that many bytes have been read.
+ */
+@Component
+public class LoginCredentialsParser {
+
+    // thread-safe and reused, it recycles its buffers between parsers
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(16).build())
+            .build();
+
+    private final int maxBodySize;
+
+    public LoginCredentialsParser(@Value("${security.login.max-body-size:4096}") int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @throws LoginBodyTooLargeException if the body is too long
+     * @throws com.fasterxml.jackson.core.JsonProcessingException if the body
+     *         is not a JSON object or the username or password is not a string
+     */
+    public LoginCredentials parse(HttpServletRequest req) throws IOException {
+        if (req.getContentLengthLong() > maxBodySize) {
+            throw new LoginBodyTooLargeException(maxBodySize);
+        }
+        return parse(req.getInputStream());
+    }
+
+    public LoginCredentials parse(InputStream body) throws IOException {
+        try (JsonParser parser = JSON.createParser(new BoundedInputStream(body, maxBodySize))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Login request body must be a JSON object");
+            }
+            String username = null;
+            String password = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("username".equals(field)) {
+                    username = text(parser);
+                } else if ("password".equals(field)) {
+                    password = text(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new LoginCredentials(username, password);
+        }
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected a string for " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long read;
+
+        private BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws LoginBodyTooLargeException {
+            read += n;
+            if (read > limit) {
+                throw new LoginBodyTooLargeException(limit);
+            }
+        }
+    }
+}
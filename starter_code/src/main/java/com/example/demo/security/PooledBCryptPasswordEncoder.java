@@ -0,0 +1,166 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BCrypt encoder that runs every hash on a dedicated, fixed-size pool with a
+ * bounded queue. A burst of signups or logins can then only occupy that many
+ * cores; once the queue is full further requests are rejected with
+ * {@link PasswordHashingRejectedException} rather than tying up servlet threads.
+ *
+ * <p>A running BCrypt hash cannot be interrupted, so the timeout only bounds
+ * how long the caller waits: a hash that has started runs to completion even
+ * after its caller gave up. Load is therefore shed before it is queued: a
+ * request whose expected wait, the queued hashes ahead of it spread over the
+ * pool times the recent average hash time, already exceeds the timeout is
+ * rejected straight away instead of adding work nobody will wait for.
+ */
+public class PooledBCryptPasswordEncoder extends BCryptPasswordEncoder implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final long timeoutNanos;
+    private volatile long averageHashNanos;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyStats encodeStats = new LatencyStats();
+    private final LatencyStats matchStats = new LatencyStats();
+    private final LatencyStats importStats = new LatencyStats();
+
+    public PooledBCryptPasswordEncoder(int strength, int threads, int queueCapacity, Duration timeout) {
+        super(strength);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hashing-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.threads = threads;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> PooledBCryptPasswordEncoder.super.encode(rawPassword), encodeStats);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> PooledBCryptPasswordEncoder.super.matches(rawPassword, encodedPassword), matchStats);
+    }
+
+    /**
+     * Hashes on the calling thread rather than the pool, for bulk imports that
+     * bring their own bounded pool and must not fill this queue. The time is
+     * recorded with the other hashing latencies as {@code operation=import}.
+     */
+    public String encodeForImport(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        try {
+            return super.encode(rawPassword);
+        } finally {
+            importStats.record(System.nanoTime() - start);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hashing requests waiting for a pool thread").register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+        FunctionCounter.builder("password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Hashing requests turned away because the pool was saturated").register(registry);
+        encodeStats.bindTo(registry, "password.hashing.latency", "Queue wait plus hashing time", "operation", "encode");
+        matchStats.bindTo(registry, "password.hashing.latency", "Queue wait plus hashing time", "operation", "matches");
+        importStats.bindTo(registry, "password.hashing.latency", "Queue wait plus hashing time", "operation", "import");
+    }
+
+    /**
+     * Whether a request arriving behind {@code queueDepth} waiting hashes would
+     * most likely time out. An empty queue always admits, so the average keeps
+     * being refreshed even after a run of slow hashes.
+     */
+    boolean wouldTimeOut(int queueDepth) {
+        return queueDepth > 0 && (queueDepth / threads + 1) * averageHashNanos > timeoutNanos;
+    }
+
+    /**
+     * Folds one hash time into the moving average. Concurrent updates may lose
+     * a sample, which an estimate can afford.
+     */
+    void recordHash(long elapsedNanos) {
+        long average = averageHashNanos;
+        averageHashNanos = average == 0 ? elapsedNanos : average + (elapsedNanos - average) / 8;
+    }
+
+    private <T> T run(Callable<T> task, LatencyStats stats) {
+        long start = System.nanoTime();
+        if (wouldTimeOut(executor.getQueue().size())) {
+            rejected.increment();
+            stats.record(System.nanoTime() - start);
+            throw new PasswordHashingRejectedException("Password hashing queue would not clear before the timeout");
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long hashStart = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    recordHash(System.nanoTime() - hashStart);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing pool is saturated", e);
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // drops the hash if it is still queued; one that is running finishes regardless
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            stats.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -3,8 +3,14 @@ package com.example.demo.security;
 public class SecurityConstants {
 
 	public static final String SECRET = "oursecretkey";
-    public static final long EXPIRATION_TIME = 864_000_000; // 10 days
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
+    public static final String REFRESH_HEADER_STRING = "Refresh-Token";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String JWKS_URL = "/.well-known/jwks.json";
+    public static final String REFRESH_URL = "/api/auth/refresh";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CART_ID_CLAIM = "cid";
+    public static final String TOKEN_USE_CLAIM = "use";
+    public static final String REFRESH_TOKEN_USE = "refresh";
 }
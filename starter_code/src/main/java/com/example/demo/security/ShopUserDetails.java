@@ -0,0 +1,33 @@
+package com.example.demo.security;
+
+import com.example.demo.cache.UserIdentity;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * Login-time user details that also carry the ids written into the token.
+ */
+public class ShopUserDetails extends User {
+
+    private final long id;
+    private final Long cartId;
+
+    public ShopUserDetails(UserIdentity identity) {
+        super(identity.getUsername(), identity.getPassword(), Collections.emptyList());
+        this.id = identity.getId();
+        this.cartId = identity.getCartId();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public AuthenticatedUser toAuthenticatedUser() {
+        return new AuthenticatedUser(id, getUsername(), cartId);
+    }
+}
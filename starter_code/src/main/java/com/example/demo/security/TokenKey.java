@@ -0,0 +1,132 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One entry of the {@link TokenKeyRing}: the algorithm built from the key and
+ * a verifier pinned to it, both constructed once when the key is loaded.
+ */
+public final class TokenKey {
+
+    private final String id;
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final PublicKey publicKey;
+    private final boolean signing;
+
+    private TokenKey(String id, Algorithm algorithm, PublicKey publicKey, boolean signing) {
+        this.id = id;
+        this.algorithm = algorithm;
+        this.verifier = JWT.require(algorithm).build();
+        this.publicKey = publicKey;
+        this.signing = signing;
+    }
+
+    /**
+     * An ES256/384/512 or RS256 key; without a private key it can only verify.
+     */
+    static TokenKey asymmetric(String id, PublicKey publicKey, PrivateKey privateKey) {
+        Algorithm algorithm;
+        if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            ECPrivateKey ecPrivate = (ECPrivateKey) privateKey;
+            switch (ec.getParams().getCurve().getField().getFieldSize()) {
+                case 256:
+                    algorithm = Algorithm.ECDSA256(ec, ecPrivate);
+                    break;
+                case 384:
+                    algorithm = Algorithm.ECDSA384(ec, ecPrivate);
+                    break;
+                case 521:
+                    algorithm = Algorithm.ECDSA512(ec, ecPrivate);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported curve for token key " + id);
+            }
+        } else if (publicKey instanceof RSAPublicKey) {
+            algorithm = Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
+        } else {
+            throw new IllegalArgumentException("Unsupported key type " + publicKey.getAlgorithm() + " for token key " + id);
+        }
+        return new TokenKey(id, algorithm, publicKey, privateKey != null);
+    }
+
+    /**
+     * An HS512 key; anyone who can verify with it can also sign.
+     */
+    static TokenKey secret(String id, byte[] secret) {
+        return new TokenKey(id, Algorithm.HMAC512(secret), null, true);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public JWTVerifier getVerifier() {
+        return verifier;
+    }
+
+    public boolean isSigning() {
+        return signing;
+    }
+
+    /**
+     * The public half as a JSON Web Key, or null for a shared secret, which
+     * must never be published.
+     */
+    public Map<String, Object> toJwk() {
+        if (publicKey == null) {
+            return null;
+        }
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", id);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm.getName());
+        if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            int fieldSize = ec.getParams().getCurve().getField().getFieldSize();
+            int length = (fieldSize + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + fieldSize);
+            jwk.put("x", base64Url(ec.getW().getAffineX(), length));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), length));
+        } else {
+            RSAPublicKey rsa = (RSAPublicKey) publicKey;
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus(), (rsa.getModulus().bitLength() + 7) / 8));
+            jwk.put("e", base64Url(rsa.getPublicExponent(), (rsa.getPublicExponent().bitLength() + 7) / 8));
+        }
+        return jwk;
+    }
+
+    // unsigned big-endian, left-padded to the given length as JWK coordinates require
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > length) {
+            bytes = Arrays.copyOfRange(bytes, bytes.length - length, bytes.length);
+        } else if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
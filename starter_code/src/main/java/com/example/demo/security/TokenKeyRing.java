@@ -0,0 +1,285 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWTVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The keys tokens are signed and verified with, by key id ({@code kid}).
+ * <p>
+ * Keys come from a PKCS12 keystore ({@code security.jwt.keystore}) with one
+ * entry per key id: EC or RSA key pairs sign with ES256 or RS256, secret keys
+ * with HS512, and certificate-only entries verify tokens signed elsewhere.
+ * The configured {@code security.jwt.signing-key-id}, or else the newest
+ * entry that has a private or secret key, signs new tokens. The file is read
+ * again when it changes, so keys can be added, promoted and retired without a
+ * restart.
+ * <p>
+ * Without a keystore a key pair for {@code security.jwt.algorithm} is
+ * generated at startup and tokens do not survive a restart; HS512 needs a
+ * secret key from the keystore and refuses to start without one.
+ * <p>
+ * Tokens from before key ids were signed with the shared secret, which is
+ * public. They are only accepted while {@code security.jwt.accept-legacy} is
+ * set, and only if they expire within the 10 days such tokens were issued
+ * for, counted from startup, so a token forged with the secret cannot
+ * outlive the migration window.
+ */
+@Component
+public final class TokenKeyRing {
+
+    /** Key id of the shared secret tokens were signed with before key ids were introduced. */
+    public static final String LEGACY_KEY_ID = "legacy";
+
+    /** How long tokens signed with the shared secret were valid for. */
+    public static final long LEGACY_TOKEN_TTL = 864_000_000L;
+
+    private static final Logger log = LoggerFactory.getLogger(TokenKeyRing.class);
+
+    private final Path keyStore;
+    private final char[] password;
+    private final String signingKeyId;
+    private final TokenKey legacyKey;
+    private final long legacyNotAfter;
+    private final List<Runnable> removalListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Keys keys;
+    private volatile String loadedVersion;
+
+    @Autowired
+    public TokenKeyRing(@Value("${security.jwt.keystore:}") String keyStore,
+            @Value("${security.jwt.keystore-password:}") String password,
+            @Value("${security.jwt.signing-key-id:}") String signingKeyId,
+            @Value("${security.jwt.algorithm:RS256}") String algorithm,
+            @Value("${security.jwt.accept-legacy:false}") boolean acceptLegacy) {
+        this(keyStore.isEmpty() ? null : Paths.get(keyStore), password.toCharArray(),
+                signingKeyId.isEmpty() ? null : signingKeyId, acceptLegacy);
+        if (this.keyStore != null) {
+            keys = loadKeyStore();
+        } else if ("HS512".equals(algorithm)) {
+            throw new IllegalStateException("security.jwt.algorithm=HS512 needs a secret key in security.jwt.keystore");
+        } else {
+            keys = Keys.of(generate(algorithm));
+            log.warn("No security.jwt.keystore configured; signing with generated {} key {}, "
+                    + "tokens will not survive a restart", algorithm, keys.signing.getId());
+        }
+    }
+
+    private TokenKeyRing(Path keyStore, char[] password, String signingKeyId, boolean acceptLegacy) {
+        this.keyStore = keyStore;
+        this.password = password;
+        this.signingKeyId = signingKeyId;
+        this.legacyKey = acceptLegacy ? TokenKey.secret(LEGACY_KEY_ID, SecurityConstants.SECRET.getBytes()) : null;
+        this.legacyNotAfter = System.currentTimeMillis() + LEGACY_TOKEN_TTL;
+    }
+
+    /**
+     * A ring holding one freshly generated key for the given algorithm
+     * (ES256, RS256 or HS512, with a random secret).
+     */
+    public static TokenKeyRing generated(String algorithm) {
+        return generated(algorithm, false);
+    }
+
+    public static TokenKeyRing generated(String algorithm, boolean acceptLegacy) {
+        TokenKeyRing keyRing = new TokenKeyRing(null, new char[0], null, acceptLegacy);
+        keyRing.keys = Keys.of(generate(algorithm));
+        return keyRing;
+    }
+
+    public TokenKey getSigningKey() {
+        return keys.signing;
+    }
+
+    /**
+     * The verifier for tokens carrying the given key id; tokens without one
+     * are legacy tokens.
+     *
+     * @return null if the key is unknown or has been retired
+     */
+    public JWTVerifier getVerifier(String keyId) {
+        if (isLegacy(keyId)) {
+            return legacyKey == null ? null : legacyKey.getVerifier();
+        }
+        TokenKey key = keys.byId.get(keyId);
+        return key == null ? null : key.getVerifier();
+    }
+
+    /**
+     * Whether the key id is that of the shared secret: missing, or the id
+     * HS512 tokens signed with it carried.
+     */
+    public static boolean isLegacy(String keyId) {
+        return keyId == null || LEGACY_KEY_ID.equals(keyId);
+    }
+
+    /**
+     * Whether a legacy token with the given expiry may still be used: only if
+     * it expires no later than {@link #LEGACY_TOKEN_TTL} after startup.
+     */
+    public boolean acceptsLegacyExpiry(Date expiresAt) {
+        return expiresAt != null && expiresAt.getTime() <= legacyNotAfter;
+    }
+
+    public Collection<TokenKey> getKeys() {
+        return keys.byId.values();
+    }
+
+    /**
+     * Registers a callback run after a reload retired one or more keys, so
+     * anything remembering tokens signed with them can forget those tokens.
+     */
+    public void addRemovalListener(Runnable listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * Re-reads the keystore if the file changed since it was last loaded. A
+     * keystore that cannot be read leaves the current keys in place.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.keystore-reload-interval:PT1M}",
+            initialDelayString = "${security.jwt.keystore-reload-interval:PT1M}")
+    public void reloadIfChanged() {
+        if (keyStore == null) {
+            return;
+        }
+        try {
+            if (currentVersion().equals(loadedVersion)) {
+                return;
+            }
+            Keys previous = keys;
+            keys = loadKeyStore();
+            if (!keys.byId.keySet().containsAll(previous.byId.keySet())) {
+                removalListeners.forEach(Runnable::run);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.error("Cannot reload token keys from {}, keeping {}", keyStore, keys.byId.keySet(), e);
+        }
+    }
+
+    private Keys loadKeyStore() {
+        try {
+            String version = currentVersion();
+            Keys loaded = load();
+            loadedVersion = version;
+            log.info("Loaded token keys {} from {}, signing with {}", loaded.byId.keySet(), keyStore,
+                    loaded.signing.getId());
+            return loaded;
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot load token keys from " + keyStore, e);
+        }
+    }
+
+    private String currentVersion() throws IOException {
+        return Files.getLastModifiedTime(keyStore).toMillis() + ":" + Files.size(keyStore);
+    }
+
+    private Keys load() throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            store.load(in, password);
+        }
+        Map<String, TokenKey> byId = new LinkedHashMap<>();
+        TokenKey newest = null;
+        Date newestDate = null;
+        for (String alias : Collections.list(store.aliases())) {
+            TokenKey key;
+            if (store.isKeyEntry(alias)) {
+                Key stored = store.getKey(alias, password);
+                if (stored instanceof SecretKey) {
+                    key = TokenKey.secret(alias, stored.getEncoded());
+                } else {
+                    key = TokenKey.asymmetric(alias, store.getCertificate(alias).getPublicKey(), (PrivateKey) stored);
+                }
+                Date created = store.getCreationDate(alias);
+                if (newest == null || created.after(newestDate)
+                        || (created.equals(newestDate) && alias.compareTo(newest.getId()) > 0)) {
+                    newest = key;
+                    newestDate = created;
+                }
+            } else {
+                Certificate certificate = store.getCertificate(alias);
+                key = TokenKey.asymmetric(alias, certificate.getPublicKey(), null);
+            }
+            byId.put(alias, key);
+        }
+        TokenKey signing = signingKeyId == null ? newest : byId.get(signingKeyId);
+        if (signing == null || !signing.isSigning()) {
+            throw new IllegalArgumentException("No signing key " + Objects.toString(signingKeyId, "")
+                    + " with a private or secret key in " + keyStore);
+        }
+        return new Keys(signing, byId);
+    }
+
+    private static TokenKey generate(String algorithm) {
+        try {
+            KeyPairGenerator generator;
+            switch (algorithm) {
+                case "ES256":
+                    generator = KeyPairGenerator.getInstance("EC");
+                    generator.initialize(new ECGenParameterSpec("secp256r1"));
+                    break;
+                case "RS256":
+                    generator = KeyPairGenerator.getInstance("RSA");
+                    generator.initialize(2048);
+                    break;
+                case "HS512":
+                    byte[] secret = new byte[64];
+                    new SecureRandom().nextBytes(secret);
+                    return TokenKey.secret(UUID.randomUUID().toString(), secret);
+                default:
+                    throw new IllegalArgumentException("Unsupported token algorithm " + algorithm
+                            + "; use ES256, RS256 or HS512");
+            }
+            KeyPair pair = generator.generateKeyPair();
+            return TokenKey.asymmetric(UUID.randomUUID().toString(), pair.getPublic(), pair.getPrivate());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Keys {
+        private final TokenKey signing;
+        private final Map<String, TokenKey> byId;
+
+        private Keys(TokenKey signing, Map<String, TokenKey> byId) {
+            this.signing = signing;
+            this.byId = byId;
+        }
+
+        private static Keys of(TokenKey key) {
+            Map<String, TokenKey> byId = new LinkedHashMap<>();
+            byId.put(key.getId(), key);
+            return new Keys(key, byId);
+        }
+    }
+}
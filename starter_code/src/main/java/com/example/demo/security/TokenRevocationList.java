@@ -0,0 +1,148 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ids ({@code jti}) of tokens that were revoked before they expired: access
+ * tokens of users who logged out and refresh tokens that were already used.
+ * <p>
+ * Every authenticated request asks {@link #isRevoked(String)}, so the exact
+ * set of revoked ids sits behind a Bloom filter: a token that was never
+ * revoked, almost every token, is answered from a few bits without touching
+ * the set and without allocating. Ids are remembered until their token
+ * expires and {@link #purge()} then drops them and rebuilds the filter.
+ * <p>
+ * The list lives in memory, so it is per instance and does not survive a
+ * restart; access tokens are short-lived to keep that window small.
+ */
+@Component
+public class TokenRevocationList implements MeterBinder {
+
+    private final int bits;
+    private final int hashes;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private volatile AtomicLongArray filter;
+
+    public TokenRevocationList(
+            @Value("${security.jwt.revocation.expected-revocations:100000}") int expectedRevocations,
+            @Value("${security.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long size = (long) Math.ceil(-expectedRevocations * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.max(1, Math.min((size + 63) / 64, Integer.MAX_VALUE / 64));
+        this.bits = words * 64;
+        this.hashes = (int) Math.max(1, Math.round((double) bits / expectedRevocations * ln2));
+        this.filter = new AtomicLongArray(words);
+    }
+
+    /**
+     * Revokes the token with the given id until it expires.
+     *
+     * @return false if the token has no id or was already revoked, so that of
+     *         several requests racing to use the same one-time token only one wins
+     */
+    public boolean revoke(String tokenId, long expiresAt) {
+        if (tokenId == null) {
+            return false;
+        }
+        synchronized (writeLock) {
+            if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+                return false;
+            }
+            add(filter, tokenId);
+            return true;
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !mightContain(filter, tokenId)) {
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /** Checks that got past the filter for an id that was not revoked. */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Forgets ids whose tokens have expired, which are rejected on expiry
+     * anyway, and rebuilds the filter from the rest since bits cannot be
+     * cleared individually.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.purge-interval:PT5M}",
+            initialDelayString = "${security.jwt.revocation.purge-interval:PT5M}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        synchronized (writeLock) {
+            if (!revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+                return;
+            }
+            AtomicLongArray rebuilt = new AtomicLongArray(bits / 64);
+            for (String tokenId : revoked.keySet()) {
+                add(rebuilt, tokenId);
+            }
+            filter = rebuilt;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.jwt.revoked", this, TokenRevocationList::size)
+                .description("Revoked tokens that have not expired yet").register(registry);
+        FunctionCounter.builder("security.jwt.revocation.false.positives", this, TokenRevocationList::getFalsePositives)
+                .description("Revocation checks the filter could not answer alone").register(registry);
+    }
+
+    // callers hold the write lock
+    private void add(AtomicLongArray words, String tokenId) {
+        long hash = mix(tokenId.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            words.set(bit >>> 6, words.get(bit >>> 6) | (1L << bit));
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray words, String tokenId) {
+        long hash = mix(tokenId.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // spreads the string's cached 32-bit hash over 64 bits for the two hash functions
+    private static long mix(int hashCode) {
+        long h = hashCode * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
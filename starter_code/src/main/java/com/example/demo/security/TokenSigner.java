@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Issues the tokens handed out on login and times how long signing takes.
+ * Besides the username the token carries the user's id and cart id, see
+ * {@link AuthenticatedUser}, the id of the key that signed it, see
+ * {@link TokenKeyRing}, and its own id so it can be revoked, see
+ * {@link TokenRevocationList}.
+ * <p>
+ * Access tokens are short-lived; with each one comes a longer-lived refresh
+ * token, marked by its {@code use} claim, that can only buy a new pair.
+ */
+@Component
+public class TokenSigner implements MeterBinder {
+
+    private final TokenKeyRing keyRing;
+    private final long accessTokenTtl;
+    private final long refreshTokenTtl;
+    private final LatencyStats stats = new LatencyStats();
+
+    @Autowired
+    public TokenSigner(TokenKeyRing keyRing,
+            @Value("${security.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl,
+            @Value("${security.jwt.refresh-token-ttl:P10D}") Duration refreshTokenTtl) {
+        this.keyRing = keyRing;
+        this.accessTokenTtl = accessTokenTtl.toMillis();
+        this.refreshTokenTtl = refreshTokenTtl.toMillis();
+    }
+
+    public TokenSigner(TokenKeyRing keyRing) {
+        this(keyRing, Duration.ofMinutes(15), Duration.ofDays(10));
+    }
+
+    public String sign(AuthenticatedUser user) {
+        return sign(user, null, accessTokenTtl);
+    }
+
+    public String signRefreshToken(AuthenticatedUser user) {
+        return sign(user, SecurityConstants.REFRESH_TOKEN_USE, refreshTokenTtl);
+    }
+
+    /**
+     * Adds a new access token and refresh token for the user to the response.
+     */
+    public void issue(AuthenticatedUser user, HttpServletResponse res) {
+        res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + sign(user));
+        res.addHeader(SecurityConstants.REFRESH_HEADER_STRING, signRefreshToken(user));
+    }
+
+    private String sign(AuthenticatedUser user, String use, long ttl) {
+        long start = System.nanoTime();
+        try {
+            TokenKey key = keyRing.getSigningKey();
+            JWTCreator.Builder token = JWT.create()
+                    .withKeyId(key.getId())
+                    .withJWTId(UUID.randomUUID().toString())
+                    .withSubject(user.getUsername())
+                    .withClaim(SecurityConstants.USER_ID_CLAIM, user.getId())
+                    .withExpiresAt(new Date(System.currentTimeMillis() + ttl));
+            if (user.getCartId() != null) {
+                token.withClaim(SecurityConstants.CART_ID_CLAIM, user.getCartId());
+            }
+            if (use != null) {
+                token.withClaim(SecurityConstants.TOKEN_USE_CLAIM, use);
+            }
+            return token.sign(key.getAlgorithm());
+        } finally {
+            stats.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        stats.bindTo(registry, "security.jwt.sign", "Time spent signing access and refresh tokens");
+    }
+}
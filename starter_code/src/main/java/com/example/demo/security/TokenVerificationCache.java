@@ -0,0 +1,175 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.cache.ExpiringLruCache;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserIdentity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Remembers tokens that already passed signature verification so repeated
+ * requests carrying the same token skip the signature check. A new token is
+ * checked with the verifier of the key its {@code kid} names. Entries are
+ * keyed by a SHA-256 digest of the token and expire together with the token.
+ * <p>
+ * Legacy tokens, signed with the shared secret, are accepted while the
+ * {@link TokenKeyRing} accepts them. Anyone can sign such a token, so any id
+ * claims in it are ignored and the ids are looked up once by username and
+ * cached with the token. Refresh tokens
+ * are never accepted here. Whether a token was revoked is not cached, callers
+ * ask the {@link TokenRevocationList} on every request.
+ */
+@Component
+public class TokenVerificationCache implements MeterBinder {
+
+    private final UserCache userCache;
+    private final TokenKeyRing keyRing;
+    private final ExpiringLruCache<String, AuthenticatedUser> verified;
+    private final LatencyStats cachedStats = new LatencyStats();
+    private final LatencyStats verifiedStats = new LatencyStats();
+
+    public TokenVerificationCache(UserCache userCache, TokenKeyRing keyRing,
+            @Value("${security.jwt.cache.max-size:10000}") int maxSize) {
+        this.userCache = userCache;
+        this.keyRing = keyRing;
+        this.verified = new ExpiringLruCache<>(maxSize);
+        // tokens signed with a retired key must not stay valid through the cache
+        keyRing.addRemovalListener(verified::invalidateAll);
+    }
+
+    /**
+     * Returns the user the given token was issued to, verifying its signature
+     * and expiry only if the token has not been seen before.
+     *
+     * @return null if the token names no subject or a user that no longer exists
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is invalid
+     */
+    public AuthenticatedUser verify(String token) {
+        long start = System.nanoTime();
+        String key = digest(token);
+        AuthenticatedUser user = verified.get(key);
+        if (user != null) {
+            cachedStats.record(System.nanoTime() - start);
+            return user;
+        }
+        try {
+            DecodedJWT jwt = decodeAndVerify(token);
+            if (isRefreshToken(jwt)) {
+                // a refresh token only buys new tokens, it never authenticates a request
+                return null;
+            }
+            user = toUser(jwt);
+            if (user != null && user.getExpiresAt() != 0L) {
+                verified.put(key, user, user.getExpiresAt());
+            }
+            return user;
+        } finally {
+            verifiedStats.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the user a refresh token was issued to. Refresh tokens are rare
+     * and used once, so they are always checked and never cached. Refresh
+     * tokens were introduced after key ids, so one without a key id, or
+     * signed with the shared secret, is forged.
+     *
+     * @return null if the token is not a refresh token or names no subject
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is invalid
+     */
+    public AuthenticatedUser verifyRefreshToken(String token) {
+        if (TokenKeyRing.isLegacy(JWT.decode(token).getKeyId())) {
+            throw new JWTVerificationException("Refresh tokens are never legacy tokens");
+        }
+        DecodedJWT jwt = decodeAndVerify(token);
+        return isRefreshToken(jwt) && jwt.getId() != null ? toUser(jwt) : null;
+    }
+
+    /**
+     * Drops expired tokens nobody presents again, which reads would skip
+     * but never remove.
+     */
+    @Scheduled(fixedDelayString = "${cache.clean-up-interval:PT1M}",
+            initialDelayString = "${cache.clean-up-interval:PT1M}")
+    public void cleanUp() {
+        verified.cleanUp();
+    }
+
+    public ExpiringLruCache<String, AuthenticatedUser> getEntries() {
+        return verified;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("security.jwt.cache.hits", verified, ExpiringLruCache::getHits)
+                .description("Tokens served from the verification cache").register(registry);
+        FunctionCounter.builder("security.jwt.cache.misses", verified, ExpiringLruCache::getMisses)
+                .description("Tokens that needed a signature check").register(registry);
+        FunctionCounter.builder("security.jwt.cache.evictions", verified, ExpiringLruCache::getEvictions)
+                .description("Live tokens dropped because the cache was full").register(registry);
+        FunctionCounter.builder("security.jwt.cache.expirations", verified, ExpiringLruCache::getExpirations)
+                .description("Tokens dropped because they expired").register(registry);
+        Gauge.builder("security.jwt.cache.size", verified, ExpiringLruCache::size).register(registry);
+        cachedStats.bindTo(registry, "security.jwt.verify", "Time spent authenticating a request token", "source", "cache");
+        verifiedStats.bindTo(registry, "security.jwt.verify", "Time spent authenticating a request token", "source", "signature");
+    }
+
+    private DecodedJWT decodeAndVerify(String token) {
+        DecodedJWT jwt = JWT.decode(token);
+        JWTVerifier verifier = keyRing.getVerifier(jwt.getKeyId());
+        if (verifier == null) {
+            throw new JWTVerificationException("Unknown signing key " + jwt.getKeyId());
+        }
+        DecodedJWT verified = verifier.verify(jwt);
+        if (TokenKeyRing.isLegacy(jwt.getKeyId()) && !keyRing.acceptsLegacyExpiry(verified.getExpiresAt())) {
+            throw new JWTVerificationException("Legacy token expires too late");
+        }
+        return verified;
+    }
+
+    private static boolean isRefreshToken(DecodedJWT jwt) {
+        return SecurityConstants.REFRESH_TOKEN_USE.equals(jwt.getClaim(SecurityConstants.TOKEN_USE_CLAIM).asString());
+    }
+
+    private AuthenticatedUser toUser(DecodedJWT jwt) {
+        String subject = jwt.getSubject();
+        if (subject == null) {
+            return null;
+        }
+        Date expires = jwt.getExpiresAt();
+        long expiresAt = expires == null ? 0L : expires.getTime();
+        Claim id = jwt.getClaim(SecurityConstants.USER_ID_CLAIM);
+        if (!id.isNull() && !TokenKeyRing.isLegacy(jwt.getKeyId())) {
+            return new AuthenticatedUser(id.asLong(), subject, jwt.getClaim(SecurityConstants.CART_ID_CLAIM).asLong(),
+                    jwt.getId(), expiresAt);
+        }
+        UserIdentity identity = userCache.get(subject);
+        return identity == null ? null
+                : new AuthenticatedUser(identity.getId(), subject, identity.getCartId(), jwt.getId(), expiresAt);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
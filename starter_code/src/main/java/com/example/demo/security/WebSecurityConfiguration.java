@@ -1,6 +1,9 @@
 package com.example.demo.security;
 
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.context.WebServerApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -12,6 +15,8 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 @Configuration
 @EnableWebSecurity
@@ -19,14 +24,24 @@ public class WebSecurityConfiguration {
 	
     private final UserDetailsServiceImpl userDetailsService;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final TokenVerificationCache tokenVerificationCache;
+    private final TokenSigner tokenSigner;
+    private final TokenRevocationList tokenRevocationList;
+    private final LoginCredentialsParser loginCredentialsParser;
    
     @Autowired
     private AuthenticationConfiguration authenticationConfiguration;
 
     public WebSecurityConfiguration(UserDetailsServiceImpl userDetailsService,
-			BCryptPasswordEncoder bCryptPasswordEncoder) {
+			BCryptPasswordEncoder bCryptPasswordEncoder, TokenVerificationCache tokenVerificationCache,
+			TokenSigner tokenSigner, TokenRevocationList tokenRevocationList,
+			LoginCredentialsParser loginCredentialsParser) {
 		this.userDetailsService = userDetailsService;
 		this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+		this.tokenVerificationCache = tokenVerificationCache;
+		this.tokenSigner = tokenSigner;
+		this.tokenRevocationList = tokenRevocationList;
+		this.loginCredentialsParser = loginCredentialsParser;
 	}
     
     @Bean
@@ -35,11 +50,19 @@ public class WebSecurityConfiguration {
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(registry ->{
                 registry.requestMatchers(HttpMethod.POST,SecurityConstants.SIGN_UP_URL).permitAll();
+                registry.requestMatchers(HttpMethod.GET, SecurityConstants.JWKS_URL).permitAll();
+                // the refresh token in the request is the credential
+                registry.requestMatchers(HttpMethod.POST, SecurityConstants.REFRESH_URL).permitAll();
+                // the request that started a streamed response was already authorized
+                registry.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+                // actuator has its own port, bound to an internal address so scrapers need no token
+                registry.requestMatchers(WebSecurityConfiguration::onManagementServer).permitAll();
                 registry.anyRequest().authenticated();
                 
             })
-            .addFilter(new JWTAuthenticationFilter(authenticationManager()))
-            .addFilter(new JWTAuthenticationVerficationFilter(authenticationManager()))
+            .addFilter(new JWTAuthenticationFilter(authenticationManager(), tokenSigner, loginCredentialsParser))
+            .addFilter(new JWTAuthenticationVerficationFilter(authenticationManager(), tokenVerificationCache,
+                    tokenRevocationList))
             .sessionManagement((var session)-> {
                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
             })
@@ -51,4 +74,9 @@ public class WebSecurityConfiguration {
 public AuthenticationManager authenticationManager() throws Exception {
     return authenticationConfiguration.getAuthenticationManager();
     }    
+
+    private static boolean onManagementServer(HttpServletRequest request) {
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(request.getServletContext());
+        return context != null && WebServerApplicationContext.hasServerNamespace(context, "management");
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a cart update kept losing to concurrent updates of the same cart
+ * and ran out of retries.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CartConflictException extends RuntimeException {
+
+	public CartConflictException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Applies cart mutations with optimistic concurrency control. Each mutation is
+ * retried a bounded number of times when another request changed the same
+ * cart first. Optionally, mutations of the same cart inside this process are
+ * also serialized on a lock striped by cart id, so hot carts queue up instead
+ * of burning retries, while different carts almost never share a lock.
+ */
+@Component
+public class CartUpdater implements MeterBinder {
+
+	private final CartRepository cartRepository;
+	private final int maxAttempts;
+	private final ReentrantLock[] stripes;
+
+	private final LongAdder conflicts = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+
+	public CartUpdater(CartRepository cartRepository,
+			@Value("${cart.update.max-attempts:5}") int maxAttempts,
+			@Value("${cart.update.lock-stripes:64}") int lockStripes) {
+		this.cartRepository = cartRepository;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		if (lockStripes > 0) {
+			this.stripes = new ReentrantLock[lockStripes];
+			for (int i = 0; i < lockStripes; i++) {
+				stripes[i] = new ReentrantLock();
+			}
+		} else {
+			this.stripes = null;
+		}
+	}
+
+	public boolean addItems(Long cartId, Item item, int quantity) {
+		return update(cartId, () -> cartRepository.addItems(cartId, item, quantity));
+	}
+
+	public boolean removeItems(Long cartId, Item item, int quantity) {
+		return update(cartId, () -> cartRepository.removeItems(cartId, item, quantity));
+	}
+
+	public long getConflicts() {
+		return conflicts.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("cart.update.conflicts", conflicts, LongAdder::sum)
+				.description("Cart updates retried because the cart changed concurrently").register(registry);
+		FunctionCounter.builder("cart.update.exhausted", exhausted, LongAdder::sum)
+				.description("Cart updates abandoned after the last retry").register(registry);
+	}
+
+	private boolean update(Long cartId, BooleanSupplier mutation) {
+		ReentrantLock lock = stripes == null ? null : stripes[Math.floorMod(cartId.hashCode(), stripes.length)];
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			for (int attempt = 1;; attempt++) {
+				try {
+					return mutation.getAsBoolean();
+				} catch (OptimisticLockingFailureException e) {
+					conflicts.increment();
+					if (attempt >= maxAttempts) {
+						exhausted.increment();
+						throw new CartConflictException("Cart " + cartId + " is being updated concurrently", e);
+					}
+					backOff(attempt);
+				}
+			}
+		} finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static void backOff(int attempt) {
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextInt(1, 1 + 2 * attempt));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
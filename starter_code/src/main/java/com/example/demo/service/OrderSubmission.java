@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+
+/**
+ * Outcome of an asynchronous order submission, as seen by a client polling
+ * for it. The status moves from {@code PENDING} to either {@code COMPLETED},
+ * with the id of the persisted order, or {@code FAILED}.
+ */
+public class OrderSubmission {
+
+	public enum Status {
+		PENDING, COMPLETED, FAILED
+	}
+
+	private final String id;
+	private final String username;
+	private final Instant submittedAt;
+	private volatile Status status = Status.PENDING;
+	private volatile Long orderId;
+	private volatile Instant completedAt;
+
+	public OrderSubmission(String id, String username, Instant submittedAt) {
+		this.id = id;
+		this.username = username;
+		this.submittedAt = submittedAt;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public Instant getSubmittedAt() {
+		return submittedAt;
+	}
+
+	public Instant getCompletedAt() {
+		return completedAt;
+	}
+
+	void complete(Long orderId, Instant at) {
+		this.orderId = orderId;
+		this.completedAt = at;
+		this.status = Status.COMPLETED;
+	}
+
+	void fail(Instant at) {
+		this.completedAt = at;
+		this.status = Status.FAILED;
+	}
+}
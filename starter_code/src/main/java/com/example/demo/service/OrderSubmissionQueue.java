@@ -0,0 +1,269 @@
+package com.example.demo.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.ExpiringLruCache;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Accepts orders into a bounded in-memory queue and persists them on a small
+ * pool of workers, each of which saves up to {@code batch-size} queued orders
+ * in one transaction. If a batch fails its orders are retried one by one so a
+ * single bad order does not fail the others. On shutdown new submissions are
+ * refused and everything already queued is written before the context closes.
+ */
+@Component
+public class OrderSubmissionQueue implements MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderSubmissionQueue.class);
+	private static final long POLL_MILLIS = 100;
+
+	private final OrderRepository orderRepository;
+	private final UserRepository userRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final BlockingQueue<Pending> queue;
+	private final ExecutorService workers;
+	private final int batchSize;
+	private final Duration statusTtl;
+	private final Duration shutdownTimeout;
+	private final ExpiringLruCache<String, OrderSubmission> submissions;
+
+	// submitters hold the read lock from checking closed until their order is queued,
+	// so once shutdown has closed the queue under the write lock nothing can slip in after the final drain
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private volatile boolean closed;
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder latencyNanos = new LongAdder();
+
+	@Autowired
+	public OrderSubmissionQueue(OrderRepository orderRepository, UserRepository userRepository,
+			TransactionTemplate transactionTemplate,
+			@Value("${order.submission.queue-capacity:1000}") int queueCapacity,
+			@Value("${order.submission.workers:2}") int workerCount,
+			@Value("${order.submission.batch-size:50}") int batchSize,
+			@Value("${order.submission.status-ttl:PT10M}") Duration statusTtl,
+			@Value("${order.submission.shutdown-timeout:PT30S}") Duration shutdownTimeout) {
+		this.orderRepository = orderRepository;
+		this.userRepository = userRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.statusTtl = statusTtl;
+		this.shutdownTimeout = shutdownTimeout;
+		this.submissions = new ExpiringLruCache<>(Math.max(queueCapacity, 1) * 10);
+		AtomicInteger count = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(workerCount, r -> new Thread(r,
+				"order-submission-" + count.incrementAndGet()));
+		for (int i = 0; i < workerCount; i++) {
+			workers.execute(this::work);
+		}
+	}
+
+	/**
+	 * Snapshots the cart and queues it to be saved as an order. The returned
+	 * submission is pending until a worker has committed the order.
+	 *
+	 * @throws OrderSubmissionRejectedException if the queue is full or shutting down
+	 */
+	public OrderSubmission submit(Cart cart) {
+		OrderSubmission submission = new OrderSubmission(UUID.randomUUID().toString(),
+				cart.getUser().getUsername(), Instant.now());
+		List<OrderLine> lines = cart.getLines().stream().map(OrderLine::of).collect(Collectors.toList());
+		Pending pending = new Pending(submission, cart.getUser().getId(), lines, cart.getTotal(), System.nanoTime());
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				rejected.increment();
+				throw new OrderSubmissionRejectedException("Order submission is shutting down");
+			}
+			submissions.put(submission.getId(), submission, expiry());
+			if (!queue.offer(pending)) {
+				submissions.invalidate(submission.getId());
+				rejected.increment();
+				throw new OrderSubmissionRejectedException("Order submission queue is full");
+			}
+		} finally {
+			closeLock.readLock().unlock();
+		}
+		return submission;
+	}
+
+	/**
+	 * The submission with the given id, or {@code null} if it is unknown or
+	 * finished longer than {@code status-ttl} ago.
+	 */
+	public OrderSubmission getStatus(String id) {
+		return submissions.get(id);
+	}
+
+	// statuses nobody polls again would otherwise stay until the cache fills
+	@Scheduled(fixedDelayString = "${cache.clean-up-interval:PT1M}",
+			initialDelayString = "${cache.clean-up-interval:PT1M}")
+	public void cleanUpStatuses() {
+		submissions.cleanUp();
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		closeLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		workers.shutdown();
+		if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+			log.warn("Order submission workers did not finish within {}", shutdownTimeout);
+		}
+		// anything queued after the workers last looked
+		List<Pending> remaining = new ArrayList<>();
+		while (queue.drainTo(remaining, batchSize) > 0) {
+			persist(remaining);
+			remaining.clear();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("order.submission.queue.depth", queue, BlockingQueue::size)
+				.description("Orders accepted but not yet persisted").register(registry);
+		FunctionTimer.builder("order.submission.latency", this, q -> q.completed.sum(), q -> q.latencyNanos.sum(),
+				TimeUnit.NANOSECONDS)
+				.description("Time from submission to the order being committed").register(registry);
+		FunctionCounter.builder("order.submission.rejected", rejected, LongAdder::sum)
+				.description("Submissions refused because the queue was full or closed").register(registry);
+		FunctionCounter.builder("order.submission.failed", failed, LongAdder::sum)
+				.description("Submissions that could not be persisted").register(registry);
+	}
+
+	private void work() {
+		List<Pending> batch = new ArrayList<>(batchSize);
+		boolean interrupted = false;
+		while (true) {
+			Pending first;
+			if (interrupted) {
+				first = queue.poll();
+			} else {
+				try {
+					first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					interrupted = true;
+					continue;
+				}
+			}
+			if (first == null) {
+				if (closed || interrupted) {
+					return;
+				}
+				continue;
+			}
+			batch.add(first);
+			queue.drainTo(batch, batchSize - 1);
+			persist(batch);
+			batch.clear();
+		}
+	}
+
+	private void persist(List<Pending> batch) {
+		try {
+			List<Long> ids = transactionTemplate.execute(status -> {
+				List<UserOrder> orders = batch.stream().map(this::toOrder).collect(Collectors.toList());
+				return orderRepository.saveAll(orders).stream().map(UserOrder::getId).collect(Collectors.toList());
+			});
+			for (int i = 0; i < batch.size(); i++) {
+				complete(batch.get(i), ids.get(i));
+			}
+		} catch (RuntimeException e) {
+			if (batch.size() > 1) {
+				for (Pending pending : batch) {
+					persist(List.of(pending));
+				}
+				return;
+			}
+			Pending pending = batch.get(0);
+			log.error("Order submission {} for user {} failed", pending.submission.getId(),
+					pending.submission.getUsername(), e);
+			failed.increment();
+			pending.submission.fail(Instant.now());
+			submissions.put(pending.submission.getId(), pending.submission, expiry());
+		}
+	}
+
+	private void complete(Pending pending, Long orderId) {
+		latencyNanos.add(System.nanoTime() - pending.enqueuedNanos);
+		completed.increment();
+		pending.submission.complete(orderId, Instant.now());
+		submissions.put(pending.submission.getId(), pending.submission, expiry());
+	}
+
+	// the cart was loaded on the request thread, so attach the user by reference in this session
+	private UserOrder toOrder(Pending pending) {
+		UserOrder order = new UserOrder();
+		order.setUser(userRepository.getReferenceById(pending.userId));
+		order.setLines(new ArrayList<>(pending.lines));
+		order.setTotal(pending.total);
+		return order;
+	}
+
+	private long expiry() {
+		return System.currentTimeMillis() + statusTtl.toMillis();
+	}
+
+	private static final class Pending {
+		private final OrderSubmission submission;
+		private final Long userId;
+		private final List<OrderLine> lines;
+		private final BigDecimal total;
+		private final long enqueuedNanos;
+
+		private Pending(OrderSubmission submission, Long userId, List<OrderLine> lines, BigDecimal total,
+				long enqueuedNanos) {
+			this.submission = submission;
+			this.userId = userId;
+			this.lines = lines;
+			this.total = total;
+			this.enqueuedNanos = enqueuedNanos;
+		}
+	}
+}
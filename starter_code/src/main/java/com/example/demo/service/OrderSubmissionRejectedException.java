@@ -0,0 +1,16 @@
+package com.example.demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the order submission queue is full or shutting down and cannot
+ * accept another order.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OrderSubmissionRejectedException extends RuntimeException {
+
+	public OrderSubmissionRejectedException(String message) {
+		super(message);
+	}
+}
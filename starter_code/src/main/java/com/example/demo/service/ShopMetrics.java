@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Distributions of how many units carts hold after each change and how many
+ * units each order is placed with.
+ */
+@Component
+public class ShopMetrics {
+
+	private final DistributionSummary cartSize;
+	private final DistributionSummary orderSize;
+
+	public ShopMetrics(MeterRegistry registry) {
+		this.cartSize = DistributionSummary.builder("cart.size")
+				.description("Units in a cart after it was changed")
+				.baseUnit("items")
+				.publishPercentileHistogram()
+				.register(registry);
+		this.orderSize = DistributionSummary.builder("order.size")
+				.description("Units in a submitted order")
+				.baseUnit("items")
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	public void recordCart(Cart cart) {
+		cartSize.record(units(cart));
+	}
+
+	public void recordOrder(Cart cart) {
+		orderSize.record(units(cart));
+	}
+
+	private static long units(Cart cart) {
+		long units = 0;
+		for (CartLine line : cart.getLines()) {
+			units += line.getQuantity();
+		}
+		return units;
+	}
+}
@@ -0,0 +1,449 @@
+package com.example.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PooledBCryptPasswordEncoder;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Creates users in bulk from a stream of signup records. Records are taken in
+ * chunks: each chunk is validated, its passwords are hashed in parallel on a
+ * pool of its own, and its users and carts are inserted in one transaction as
+ * JDBC batches. Results are handed back chunk by chunk, in input order, as
+ * soon as they commit.
+ * <p>
+ * The import pool does not take slots in the login hashing queue, but it does
+ * compete for the same cores, so it defaults to half of them; hashing time is
+ * reported with logins under {@code password.hashing.latency}. Imports are
+ * off unless {@code user.import.enabled} is set.
+ */
+@Component
+public class UserImporter implements MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(UserImporter.class);
+
+	public enum Status {
+		CREATED, REJECTED, FAILED
+	}
+
+	private final UserRepository userRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final PooledBCryptPasswordEncoder encoder;
+	private final ExecutorService hashing;
+	private final int chunkSize;
+	private final boolean enabled;
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	public UserImporter(UserRepository userRepository, TransactionTemplate transactionTemplate,
+			ObjectMapper objectMapper, PooledBCryptPasswordEncoder encoder,
+			@Value("${user.import.enabled:false}") boolean enabled,
+			@Value("${user.import.threads:#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}}") int threads,
+			@Value("${user.import.chunk-size:1000}") int chunkSize) {
+		this.userRepository = userRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.objectMapper = objectMapper;
+		this.encoder = encoder;
+		this.enabled = enabled;
+		this.chunkSize = Math.max(1, chunkSize);
+		AtomicInteger count = new AtomicInteger();
+		this.hashing = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+			Thread t = new Thread(r, "user-import-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Imports every record, passing each chunk's results to {@code sink} once
+	 * the chunk has been committed. A record that cannot be parsed ends the
+	 * import with a {@code FAILED} result for it.
+	 */
+	public Summary importUsers(Iterator<CreateUserRequest> records, ChunkSink sink) throws IOException {
+		active.incrementAndGet();
+		long start = System.nanoTime();
+		Summary summary = new Summary();
+		try {
+			boolean more = true;
+			while (more) {
+				List<Result> chunk = new ArrayList<>(chunkSize);
+				List<CreateUserRequest> requests = new ArrayList<>(chunkSize);
+				while (chunk.size() < chunkSize) {
+					try {
+						if (!records.hasNext()) {
+							more = false;
+							break;
+						}
+						CreateUserRequest request = records.next();
+						requests.add(request);
+						chunk.add(new Result(summary.records + chunk.size() + 1,
+								request == null ? null : request.getUsername()));
+					} catch (RuntimeException e) {
+						Result malformed = new Result(summary.records + chunk.size() + 1, null);
+						malformed.finish(Status.FAILED, null, "malformed record: " + e.getMessage());
+						requests.add(null);
+						chunk.add(malformed);
+						more = false;
+						break;
+					}
+				}
+				if (chunk.isEmpty()) {
+					break;
+				}
+				process(requests, chunk);
+				summary.add(chunk, System.nanoTime() - start);
+				sink.accept(chunk);
+				log.info("User import: {} records, {} created, {} rejected, {} failed, {} users/s",
+						summary.records, summary.created, summary.rejected, summary.failed, summary.usersPerSecond);
+			}
+			return summary;
+		} finally {
+			active.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Records from CSV with columns {@code username,password[,confirmPassword]}.
+	 * A header row is skipped, fields may be double-quoted, and a missing
+	 * confirmation is taken to match the password.
+	 */
+	public Iterator<CreateUserRequest> readCsv(InputStream in) {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		return new Iterator<CreateUserRequest>() {
+			private String next = advance(true);
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public CreateUserRequest next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				List<String> fields = parseCsvLine(next);
+				next = advance(false);
+				CreateUserRequest request = new CreateUserRequest();
+				request.setUsername(fields.get(0).trim());
+				request.setPassword(fields.size() > 1 ? fields.get(1) : null);
+				request.setConfirmPassword(fields.size() > 2 ? fields.get(2) : request.getPassword());
+				return request;
+			}
+
+			private String advance(boolean first) {
+				try {
+					String line;
+					do {
+						line = reader.readLine();
+					} while (line != null && line.isBlank());
+					if (first && line != null && parseCsvLine(line).get(0).trim().equalsIgnoreCase("username")) {
+						return advance(false);
+					}
+					return line;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Records from newline-delimited JSON objects shaped like {@link CreateUserRequest}.
+	 */
+	public Iterator<CreateUserRequest> readNdjson(InputStream in) throws IOException {
+		Iterator<CreateUserRequest> requests = objectMapper.readerFor(CreateUserRequest.class).readValues(in);
+		return new Iterator<CreateUserRequest>() {
+			@Override
+			public boolean hasNext() {
+				return requests.hasNext();
+			}
+
+			@Override
+			public CreateUserRequest next() {
+				CreateUserRequest request = requests.next();
+				if (request.getConfirmPassword() == null) {
+					request.setConfirmPassword(request.getPassword());
+				}
+				return request;
+			}
+		};
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		hashing.shutdown();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("user.import.active", active, AtomicInteger::get)
+				.description("Bulk user imports in progress").register(registry);
+		FunctionCounter.builder("user.import.records", created, LongAdder::sum)
+				.tag("outcome", "created").register(registry);
+		FunctionCounter.builder("user.import.records", rejected, LongAdder::sum)
+				.tag("outcome", "rejected").register(registry);
+		FunctionCounter.builder("user.import.records", failed, LongAdder::sum)
+				.tag("outcome", "failed").register(registry);
+	}
+
+	private void process(List<CreateUserRequest> requests, List<Result> chunk) {
+		List<String> usernames = chunk.stream().map(Result::getUsername).filter(u -> u != null)
+				.collect(Collectors.toList());
+		Set<String> existing = usernames.isEmpty() ? new HashSet<>()
+				: new HashSet<>(userRepository.findUsernamesIn(usernames));
+		Set<String> seen = new HashSet<>();
+		List<Integer> accepted = new ArrayList<>();
+		List<Callable<String>> hashes = new ArrayList<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			Result result = chunk.get(i);
+			CreateUserRequest request = requests.get(i);
+			if (result.getStatus() != null) {
+				continue;
+			}
+			String error = validate(request, existing, seen);
+			if (error != null) {
+				result.finish(Status.REJECTED, null, error);
+				continue;
+			}
+			accepted.add(i);
+			hashes.add(() -> encoder.encodeForImport(request.getPassword()));
+		}
+		List<User> users = new ArrayList<>(accepted.size());
+		try {
+			List<Future<String>> hashed = hashing.invokeAll(hashes);
+			for (int i = 0; i < accepted.size(); i++) {
+				users.add(newUser(chunk.get(accepted.get(i)).getUsername(), hashed.get(i).get()));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while hashing imported passwords", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Hashing an imported password failed", e.getCause());
+		}
+		save(users, accepted, chunk);
+		for (Result result : chunk) {
+			if (result.getStatus() == Status.CREATED) {
+				created.increment();
+			} else if (result.getStatus() == Status.REJECTED) {
+				rejected.increment();
+			} else {
+				failed.increment();
+			}
+		}
+	}
+
+	private void save(List<User> users, List<Integer> indexes, List<Result> chunk) {
+		if (users.isEmpty()) {
+			return;
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> userRepository.saveAll(users));
+			for (int i = 0; i < users.size(); i++) {
+				chunk.get(indexes.get(i)).finish(Status.CREATED, users.get(i).getId(), null);
+			}
+		} catch (RuntimeException e) {
+			if (users.size() == 1) {
+				log.warn("Could not import user {}", users.get(0).getUsername(), e);
+				chunk.get(indexes.get(0)).finish(Status.FAILED, null, "could not be saved");
+				return;
+			}
+			// someone else may have taken a username meanwhile; find out which record it was
+			for (int i = 0; i < users.size(); i++) {
+				users.get(i).setId(0L);
+				users.get(i).getCart().setId(null);
+				save(List.of(users.get(i)), List.of(indexes.get(i)), chunk);
+			}
+		}
+	}
+
+	private static String validate(CreateUserRequest request, Set<String> existing, Set<String> seen) {
+		if (request == null || request.getUsername() == null || request.getUsername().isBlank()) {
+			return "username is required";
+		}
+		if (request.getPassword() == null || request.getPassword().length() < 7
+				|| !request.getPassword().equals(request.getConfirmPassword())) {
+			return "password must be at least 7 characters and match confirmPassword";
+		}
+		if (existing.contains(request.getUsername()) || !seen.add(request.getUsername())) {
+			return "username is already taken";
+		}
+		return null;
+	}
+
+	private static User newUser(String username, String passwordHash) {
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword(passwordHash);
+		Cart cart = new Cart();
+		cart.setUser(user);
+		user.setCart(cart);
+		return user;
+	}
+
+	static List<String> parseCsvLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	@FunctionalInterface
+	public interface ChunkSink {
+		void accept(List<Result> results) throws IOException;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Result {
+		private final long record;
+		private final String username;
+		private Status status;
+		private Long id;
+		private String error;
+
+		Result(long record, String username) {
+			this.record = record;
+			this.username = username;
+		}
+
+		void finish(Status status, Long id, String error) {
+			this.status = status;
+			this.id = id;
+			this.error = error;
+		}
+
+		public long getRecord() {
+			return record;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	public static class Summary {
+		private long records;
+		private long created;
+		private long rejected;
+		private long failed;
+		private long elapsedMillis;
+		private long usersPerSecond;
+
+		private void add(List<Result> chunk, long elapsedNanos) {
+			for (Result result : chunk) {
+				records++;
+				if (result.getStatus() == Status.CREATED) {
+					created++;
+				} else if (result.getStatus() == Status.REJECTED) {
+					rejected++;
+				} else {
+					failed++;
+				}
+			}
+			elapsedMillis = elapsedNanos / 1_000_000;
+			usersPerSecond = elapsedNanos == 0 ? 0 : created * 1_000_000_000L / elapsedNanos;
+		}
+
+		public long getRecords() {
+			return records;
+		}
+
+		public long getCreated() {
+			return created;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getFailed() {
+			return failed;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public long getUsersPerSecond() {
+			return usersPerSecond;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CatalogCacheTest {
+
+    private final ItemRepository itemRepo = mock(ItemRepository.class);
+
+    @Test
+    public void lookups_are_served_from_one_snapshot_until_invalidated() {
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(Arrays.asList(item(1L, "Round Widget"), item(2L, "Square Widget")));
+        CatalogCache cache = new CatalogCache(itemRepo, 100);
+
+        assertEquals("Square Widget", cache.findById(2L).get().getName());
+        assertEquals(1, cache.findByName("Round Widget").size());
+        assertEquals(List.of(2L), cache.findPage(1L, 10).stream().map(Item::getId).toList());
+        assertEquals(1, cache.getVersion());
+        verify(itemRepo, times(1)).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class));
+
+        cache.invalidate();
+        assertTrue(cache.findById(1L).isPresent());
+        assertEquals(2, cache.getVersion());
+    }
+
+    @Test
+    public void catalog_larger_than_bound_goes_to_repository() {
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(Arrays.asList(item(1L, "Round Widget"), item(2L, "Square Widget")));
+        when(itemRepo.findById(2L)).thenReturn(Optional.of(item(2L, "Square Widget")));
+        CatalogCache cache = new CatalogCache(itemRepo, 1);
+
+        assertTrue(cache.findById(2L).isPresent());
+        verify(itemRepo).findById(2L);
+    }
+
+    private static Item item(Long id, String name) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        return item;
+    }
+}
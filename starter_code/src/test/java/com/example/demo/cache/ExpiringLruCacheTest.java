@@ -0,0 +1,78 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExpiringLruCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+
+    @Test
+    public void entry_expires_at_its_own_deadline() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, now::get);
+        cache.put("a", "alice", 2_000L);
+
+        assertEquals("alice", cache.get("a"));
+        now.set(2_000L);
+        assertNull(cache.get("a"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void least_recently_used_entry_is_evicted_when_full() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, now::get);
+        cache.put("a", "alice", 5_000L);
+        cache.put("b", "bob", 5_000L);
+        // touch "a" so that "b" becomes the eldest entry
+        cache.get("a");
+        cache.put("c", "carol", 5_000L);
+
+        assertEquals("alice", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("carol", cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void clean_up_drops_expired_entries_nobody_reads() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, now::get);
+        cache.put("a", "alice", 2_000L);
+        cache.put("b", "bob", 5_000L);
+
+        now.set(3_000L);
+        cache.cleanUp();
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getExpirations());
+        assertEquals("bob", cache.get("b"));
+    }
+
+    @Test
+    public void large_cache_is_striped_without_exceeding_its_bound() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(1024, now::get);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("user" + i, "value", 5_000L);
+        }
+
+        assertEquals(ExpiringLruCache.MAX_STRIPES, cache.getStripeCount());
+        assertEquals(1024, cache.size());
+        assertEquals(10_000 - 1024, cache.getEvictions());
+        assertEquals("value", cache.get("user9999"));
+    }
+
+    @Test
+    public void small_cache_keeps_one_stripe() {
+        assertEquals(1, new ExpiringLruCache<>(100, now::get).getStripeCount());
+        assertEquals(2, ExpiringLruCache.defaultStripes(200));
+        assertEquals(ExpiringLruCache.MAX_STRIPES, ExpiringLruCache.defaultStripes(1_000_000));
+    }
+}
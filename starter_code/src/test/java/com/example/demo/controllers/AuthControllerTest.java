@@ -0,0 +1,126 @@
+package com.example.demo.controllers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.demo.TestUtils;
+import com.example.demo.cache.UserCache;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenKeyRing;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.TokenSigner;
+import com.example.demo.security.TokenVerificationCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuthControllerTest {
+
+    private AuthController authController;
+
+    private final TokenKeyRing keyRing = TokenKeyRing.generated("HS512", true);
+
+    private final TokenSigner tokenSigner = new TokenSigner(keyRing);
+
+    private final UserRepository userRepo = mock(UserRepository.class);
+
+    private final TokenVerificationCache tokenVerificationCache =
+            new TokenVerificationCache(new UserCache(userRepo, 100, Duration.ofMinutes(5)), keyRing, 100);
+
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(1_000, 0.01);
+
+    private final AuthenticatedUser alice = new AuthenticatedUser(7L, "alice", 8L);
+
+    @BeforeEach
+    public void setUp() {
+        authController = new AuthController();
+        TestUtils.injectObjects(authController, "tokenVerificationCache", tokenVerificationCache);
+        TestUtils.injectObjects(authController, "tokenRevocationList", tokenRevocationList);
+        TestUtils.injectObjects(authController, "tokenSigner", tokenSigner);
+    }
+
+    @Test
+    public void refresh_token_buys_one_new_pair() {
+        String refreshToken = tokenSigner.signRefreshToken(alice);
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        assertEquals(HttpStatus.NO_CONTENT,
+                authController.refresh(refreshToken, new MockHttpServletRequest(), res).getStatusCode());
+
+        String access = res.getHeader(SecurityConstants.HEADER_STRING).replace(SecurityConstants.TOKEN_PREFIX, "");
+        assertEquals(7L, tokenVerificationCache.verify(access).getId());
+        assertNotNull(tokenVerificationCache.verifyRefreshToken(res.getHeader(SecurityConstants.REFRESH_HEADER_STRING)));
+        assertEquals(HttpStatus.UNAUTHORIZED, authController.refresh(refreshToken, new MockHttpServletRequest(),
+                new MockHttpServletResponse()).getStatusCode());
+    }
+
+    @Test
+    public void access_tokens_cannot_refresh() {
+        assertEquals(HttpStatus.UNAUTHORIZED, authController.refresh(tokenSigner.sign(alice),
+                new MockHttpServletRequest(), new MockHttpServletResponse()).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, authController.refresh("not a token",
+                new MockHttpServletRequest(), new MockHttpServletResponse()).getStatusCode());
+    }
+
+    @Test
+    public void logout_revokes_both_tokens() {
+        AuthenticatedUser principal = tokenVerificationCache.verify(tokenSigner.sign(alice));
+        String refreshToken = tokenSigner.signRefreshToken(alice);
+        String othersRefreshToken = tokenSigner.signRefreshToken(new AuthenticatedUser(9L, "bob", 10L));
+
+        assertEquals(HttpStatus.NO_CONTENT, authController.logout(principal, refreshToken).getStatusCode());
+        authController.logout(principal, othersRefreshToken);
+
+        assertTrue(tokenRevocationList.isRevoked(principal.getTokenId()));
+        assertTrue(tokenRevocationList.isRevoked(tokenVerificationCache.verifyRefreshToken(refreshToken).getTokenId()));
+        assertFalse(tokenRevocationList.isRevoked(
+                tokenVerificationCache.verifyRefreshToken(othersRefreshToken).getTokenId()));
+    }
+
+    @Test
+    public void logout_with_a_legacy_token_fails() {
+        // legacy tokens carry no token id, so there is nothing to revoke
+        AuthenticatedUser legacy = new AuthenticatedUser(7L, "alice", 8L, null, System.currentTimeMillis() + 60_000L);
+        String refreshToken = tokenSigner.signRefreshToken(alice);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, authController.logout(legacy, refreshToken).getStatusCode());
+        assertEquals(0, tokenRevocationList.size());
+    }
+
+    @Test
+    public void forged_legacy_refresh_token_is_refused() {
+        User victim = new User();
+        victim.setId(7L);
+        victim.setUsername("alice");
+        victim.setCart(new Cart());
+        when(userRepo.findByUsername("alice")).thenReturn(victim);
+        // anyone can sign with the shared secret, and refresh tokens never existed without a key id
+        String forged = JWT.create()
+                .withSubject("alice")
+                .withJWTId("forged")
+                .withClaim(SecurityConstants.TOKEN_USE_CLAIM, SecurityConstants.REFRESH_TOKEN_USE)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000L))
+                .sign(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes()));
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, authController.refresh(forged, new MockHttpServletRequest(), res)
+                .getStatusCode());
+        assertNull(res.getHeader(SecurityConstants.HEADER_STRING));
+    }
+}
@@ -1,46 +1,62 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.CatalogCache;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartUpdater;
+import com.example.demo.service.ShopMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CartControllerTest {
 
     private CartController cartController;
 
-    private UserRepository userRepo=mock(UserRepository.class);
-
     private CartRepository cartRepo=mock(CartRepository.class);
 
     private ItemRepository itemRepo=mock(ItemRepository.class);
 
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // the caller as the token identifies them
+    private AuthenticatedUser principal = new AuthenticatedUser(0L, "test", 1L);
+
     @BeforeEach
     public void setUp() {
         cartController = new CartController();
-        TestUtils.injectObjects(cartController, "userRepository", userRepo);
         TestUtils.injectObjects(cartController, "cartRepository", cartRepo);
-        TestUtils.injectObjects(cartController, "itemRepository", itemRepo);
+        TestUtils.injectObjects(cartController, "catalogCache", new CatalogCache(itemRepo, 100));
+        TestUtils.injectObjects(cartController, "cartUpdater", new CartUpdater(cartRepo, 3, 0));
+        TestUtils.injectObjects(cartController, "shopMetrics", new ShopMetrics(registry));
 
     }
 
@@ -52,15 +68,13 @@ public class CartControllerTest {
         user.setUsername("test");
         user.setPassword("testpassword");
 
-        // Mock the behavior of userRepo to return the user when requested
-        when(userRepo.findByUsername("test")).thenReturn(user);
 
-        // Mock the behavior of itemRepo to return an item when requested
+        // Mock the catalog the item is looked up in
         Item item = new Item();
         item.setId(1L);
         item.setName("Test Item");
         item.setPrice(new BigDecimal("10.00"));
-        when(itemRepo.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(Collections.singletonList(item));
 
         // Create a new cart for the user
         Cart mockCart = new Cart();
@@ -70,6 +84,8 @@ public class CartControllerTest {
         mockCart.setUser(user);
         user.setCart(mockCart);
         when(cartRepo.findByUser(user)).thenReturn(mockCart);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
+        stubCartMutations(mockCart);
 
         // Setup the ModifyCartRequest
         ModifyCartRequest r = new ModifyCartRequest();
@@ -78,17 +94,21 @@ public class CartControllerTest {
         r.setQuantity(5);
 
         // Run the method to test from the controller with provided request details
-        final ResponseEntity<Cart> response = cartController.addTocart(r);
+        final ResponseEntity<CartResponse> response = cartController.addTocart(r, null, principal);
 
         // Check response is as expected
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        Cart returnedCart = response.getBody();
+        CartResponse returnedCart = response.getBody();
         assertNotNull(returnedCart);
-        assertEquals(1L, returnedCart.getId());
-        assertEquals("test", returnedCart.getUser().getUsername());
-        assertEquals(1L, returnedCart.getItems().get(0).getId());
-        assertEquals(5, returnedCart.getItems().size());
+        assertEquals(1L, returnedCart.id());
+        assertEquals("test", returnedCart.user().username());
+        assertEquals(1L, returnedCart.lines().get(0).item().id());
+        assertEquals(5, returnedCart.lines().get(0).quantity());
+        // one entry per unit only with expand=items
+        assertNull(returnedCart.items());
+        assertEquals(1, registry.get("cart.size").summary().count());
+        assertEquals(5.0, registry.get("cart.size").summary().totalAmount());
     }
 
     @Test
@@ -99,8 +119,6 @@ public class CartControllerTest {
         user.setUsername("test");
         user.setPassword("testpassword");
 
-        // Mock the behavior of userRepo to return the user when requested
-        when(userRepo.findByUsername("test")).thenReturn(user);
 
         // Create a new cart for the user
         Cart mockCart = new Cart();
@@ -110,6 +128,8 @@ public class CartControllerTest {
         mockCart.setUser(user);
         user.setCart(mockCart);
         when(cartRepo.findByUser(user)).thenReturn(mockCart);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
+        stubCartMutations(mockCart);
 
         // Setup the ModifyCartRequest
         ModifyCartRequest r = new ModifyCartRequest();
@@ -118,7 +138,7 @@ public class CartControllerTest {
         r.setQuantity(5);
 
         // Run the method to test from the controller with provided request details
-        final ResponseEntity<Cart> response = cartController.addTocart(r);
+        final ResponseEntity<CartResponse> response = cartController.addTocart(r, null, principal);
 
         // Check response is as expected
         assertNotNull(response);
@@ -134,15 +154,13 @@ public class CartControllerTest {
         user.setUsername("test");
         user.setPassword("testpassword");
 
-        // Mock the behavior of userRepo to return the user when requested
-        when(userRepo.findByUsername("test")).thenReturn(user);
 
-        // Mock the behavior of itemRepo to return an item when requested
+        // Mock the catalog the item is looked up in
         Item item = new Item();
         item.setId(1L);
         item.setName("Test Item");
         item.setPrice(new BigDecimal("10.00"));
-        when(itemRepo.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(Collections.singletonList(item));
 
         // Create a new cart for the user
         Cart mockCart = new Cart();
@@ -152,30 +170,89 @@ public class CartControllerTest {
         mockCart.setUser(user);
         user.setCart(mockCart);
         when(cartRepo.findByUser(user)).thenReturn(mockCart);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
+        stubCartMutations(mockCart);
 
         // Setup the ModifyCartRequest to add item to cart
         ModifyCartRequest addRequest = new ModifyCartRequest();
         addRequest.setUsername("test");
         addRequest.setItemId(1L);
         addRequest.setQuantity(5);
-        cartController.addTocart(addRequest); // Add item to cart
+        cartController.addTocart(addRequest, null, principal); // Add item to cart
 
         // Setup the ModifyCartRequest to remove item from cart
         ModifyCartRequest removeRequest = new ModifyCartRequest();
         removeRequest.setUsername("test");
         removeRequest.setItemId(1L);
         removeRequest.setQuantity(1); // Specify quantity to remove
-        final ResponseEntity<Cart> response = cartController.removeFromcart(removeRequest);
+        final ResponseEntity<CartResponse> response = cartController.removeFromcart(removeRequest, "items", principal);
 
         // Check response is as expected
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        Cart returnedCart = response.getBody();
+        CartResponse returnedCart = response.getBody();
         assertNotNull(returnedCart);
-        assertEquals(1L, returnedCart.getId());
-        assertEquals("test", returnedCart.getUser().getUsername());
-        assertEquals(1L, returnedCart.getItems().get(0).getId()); // Check the first item
-        assertEquals(4, returnedCart.getItems().size()); // Check that one item was removed
-        assertEquals(new BigDecimal("40.00"), returnedCart.getTotal()); // Check the total price after removal
+        assertEquals(1L, returnedCart.id());
+        assertEquals("test", returnedCart.user().username());
+        assertEquals(1L, returnedCart.items().get(0).id()); // Check the first item
+        assertEquals(4, returnedCart.items().size()); // Check that one item was removed
+        assertEquals(new BigDecimal("40.00"), returnedCart.total()); // Check the total price after removal
+    }
+
+    @Test
+    public void remove_more_than_in_cart_empties_line() throws Exception {
+        User user = new User();
+        user.setId(0L);
+        user.setUsername("test");
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(new BigDecimal("10.00"));
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(Collections.singletonList(item));
+
+        Cart mockCart = new Cart();
+        mockCart.setId(1L);
+        mockCart.setTotal(new BigDecimal("0.00"));
+        mockCart.setUser(user);
+        mockCart.addItem(item, 10000);
+        user.setCart(mockCart);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
+        stubCartMutations(mockCart);
+
+        ModifyCartRequest removeRequest = new ModifyCartRequest();
+        removeRequest.setUsername("test");
+        removeRequest.setItemId(1L);
+        removeRequest.setQuantity(10001);
+        final ResponseEntity<CartResponse> response = cartController.removeFromcart(removeRequest, null, principal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CartResponse returnedCart = response.getBody();
+        assertEquals(0, returnedCart.lines().size());
+        assertEquals(new BigDecimal("0.00"), returnedCart.total());
+    }
+
+    @Test
+    public void cart_of_another_user_is_not_found() {
+        ModifyCartRequest r = new ModifyCartRequest();
+        r.setUsername("someone-else");
+        r.setItemId(1L);
+        r.setQuantity(1);
+
+        assertEquals(HttpStatus.NOT_FOUND, cartController.addTocart(r, null, principal).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, cartController.removeFromcart(r, null, principal).getStatusCode());
+        verify(cartRepo, never()).addItems(any(), any(), anyInt());
+        verify(cartRepo, never()).removeItems(any(), any(), anyInt());
+    }
+
+    // apply the repository's targeted updates to the in-memory cart the mock hands back
+    private void stubCartMutations(Cart cart) {
+        when(cartRepo.addItems(eq(cart.getId()), any(Item.class), anyInt())).thenAnswer(invocation -> {
+            cart.addItem(invocation.getArgument(1), invocation.<Integer>getArgument(2));
+            return true;
+        });
+        when(cartRepo.removeItems(eq(cart.getId()), any(Item.class), anyInt())).thenAnswer(invocation -> {
+            cart.removeItem(invocation.getArgument(1), invocation.<Integer>getArgument(2));
+            return true;
+        });
     }
 }
@@ -1,23 +1,43 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.CatalogCache;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class ItemControllerTest {
 
@@ -29,6 +49,7 @@ public class ItemControllerTest {
     public void setUp() {
         itemController = new ItemController();
         TestUtils.injectObjects(itemController, "itemRepository", itemRepo);
+        TestUtils.injectObjects(itemController, "catalogCache", new CatalogCache(itemRepo, 100));
     }
 
     @Test
@@ -44,9 +65,9 @@ public class ItemControllerTest {
         mockItemTwo.setPrice(new BigDecimal("1.99"));
         List<Item> mockItems = Arrays.asList(mockItemOne, mockItemTwo);
 
-        when(itemRepo.findAll()).thenReturn(mockItems);
+        stubCatalog(mockItems);
 
-        final ResponseEntity<List<Item>> response = itemController.getItems();
+        final ResponseEntity<List<Item>> response = itemController.getItems(null, null);
 
         assertNotNull(response);
 
@@ -58,10 +79,27 @@ public class ItemControllerTest {
         assertEquals(new BigDecimal("2.99"), items.get(0).getPrice());
         assertEquals("Square Widget", items.get(1).getName());
         assertEquals(new BigDecimal("1.99"), items.get(1).getPrice());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
 
 
     }
 
+    @Test
+    public void get_items_page_links_to_next_page() throws Exception {
+        Item mockItemOne = new Item();
+        mockItemOne.setId(1L);
+        Item mockItemTwo = new Item();
+        mockItemTwo.setId(2L);
+
+        stubCatalog(Arrays.asList(mockItemOne, mockItemTwo));
+
+        final ResponseEntity<List<Item>> response = itemController.getItems(null, 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals("</api/item?after=1&size=1>; rel=\"next\"", response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
     @Test
     public void get_item_id_success() throws Exception {
         Item mockItem = new Item();
@@ -69,7 +107,7 @@ public class ItemControllerTest {
         mockItem.setName("Round Widget");
         mockItem.setPrice(new BigDecimal("2.99"));
 
-        when(itemRepo.findById(1L)).thenReturn(Optional.of(mockItem));
+        stubCatalog(Collections.singletonList(mockItem));
 
         final ResponseEntity<Item> response = itemController.getItemById(1L);
 
@@ -87,8 +125,6 @@ public class ItemControllerTest {
 
     @Test
     public void get_item_id_does_not_exist() throws Exception {
-        when(itemRepo.findById(20L)).thenReturn(Optional.empty());
-
         final ResponseEntity<Item> response = itemController.getItemById(20L);
 
         assertNotNull(response);
@@ -105,7 +141,7 @@ public class ItemControllerTest {
         mockItem.setPrice(new BigDecimal("1.99"));
 
         List<Item> mockItems = Collections.singletonList(mockItem);
-        when(itemRepo.findByName("Square Widget")).thenReturn(mockItems);
+        stubCatalog(mockItems);
 
         final ResponseEntity<List<Item>> response = itemController.getItemsByName("Square Widget");
 
@@ -123,8 +159,6 @@ public class ItemControllerTest {
 
     @Test
     public void get_item_name_does_not_exist() throws Exception {
-        when(itemRepo.findByName("Fake Item")).thenReturn(Collections.emptyList());
-
         final ResponseEntity<List<Item>> response = itemController.getItemsByName("Fake Item");
 
         assertNotNull(response);
@@ -132,4 +166,53 @@ public class ItemControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
 
     }
+
+    @Test
+    public void stream_writes_ndjson_or_an_array_from_a_cursor_inside_a_transaction() throws Exception {
+        Item one = new Item();
+        one.setId(1L);
+        one.setName("Round Widget");
+        one.setPrice(new BigDecimal("2.99"));
+        Item two = new Item();
+        two.setId(2L);
+        two.setName("Square Widget");
+        two.setPrice(new BigDecimal("1.99"));
+        when(itemRepo.streamAll()).thenAnswer(invocation -> Stream.of(one, two));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        EntityManager entityManager = mock(EntityManager.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        TestUtils.injectObjects(itemController, "objectMapper", objectMapper);
+        TestUtils.injectObjects(itemController, "transactionTemplate", new TransactionTemplate(transactionManager));
+        TestUtils.injectObjects(itemController, "entityManager", entityManager);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(itemController).build();
+        String first = objectMapper.writeValueAsString(one);
+        String second = objectMapper.writeValueAsString(two);
+
+        MvcResult ndjson = mockMvc.perform(get("/api/item/stream")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(first + "\n" + second + "\n"));
+
+        MvcResult array = mockMvc.perform(get("/api/item/stream").param("format", "array"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(array))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("[" + first + "," + second + "]"));
+
+        // the cursor is opened and drained between begin and commit, detaching items as it goes
+        InOrder inOrder = inOrder(transactionManager, itemRepo, entityManager);
+        for (int i = 0; i < 2; i++) {
+            inOrder.verify(transactionManager).getTransaction(any());
+            inOrder.verify(itemRepo).streamAll();
+            inOrder.verify(entityManager).detach(one);
+            inOrder.verify(entityManager).detach(two);
+            inOrder.verify(transactionManager).commit(any());
+        }
+    }
+
+    private void stubCatalog(List<Item> items) {
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(items);
+    }
 }
@@ -7,19 +7,29 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.persistence.repositories.OrderSummary;
+import com.example.demo.security.AuthenticatedUser;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.service.OrderSubmission;
+import com.example.demo.service.OrderSubmissionQueue;
+import com.example.demo.service.ShopMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -27,15 +37,19 @@ public class OrderControllerTest {
 
     private OrderController orderController;
 
-    private UserRepository userRepo=mock(UserRepository.class);
-
     private OrderRepository orderRepo=mock(OrderRepository.class);
 
+    private CartRepository cartRepo=mock(CartRepository.class);
+
+    private OrderSubmissionQueue submissionQueue=mock(OrderSubmissionQueue.class);
+
     @BeforeEach
     public void setUp() {
         orderController = new OrderController();
-        TestUtils.injectObjects(orderController, "userRepository", userRepo);
+        TestUtils.injectObjects(orderController, "cartRepository", cartRepo);
         TestUtils.injectObjects(orderController, "orderRepository", orderRepo);
+        TestUtils.injectObjects(orderController, "orderSubmissionQueue", submissionQueue);
+        TestUtils.injectObjects(orderController, "shopMetrics", new ShopMetrics(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -59,8 +73,7 @@ public class OrderControllerTest {
         mockCart.setUser(user);
         user.setCart(mockCart);
 
-        // Mock the behavior of userRepo to return the user when requested
-        when(userRepo.findByUsername("test")).thenReturn(user);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
 
         // Mock the save method to return the mockOrder
         when(orderRepo.save(any(UserOrder.class))).thenAnswer(invocation -> {
@@ -69,16 +82,70 @@ public class OrderControllerTest {
             return orderToSave;
         });
 
-        final ResponseEntity<UserOrder> response = orderController.submit(user.getUsername());
+        final ResponseEntity<OrderResponse> response = orderController.submit(user.getUsername(),
+                new AuthenticatedUser(0L, "test", 1L));
 
         // Check response is as expected
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        UserOrder returnedOrder = response.getBody();
+        OrderResponse returnedOrder = response.getBody();
         assertNotNull(returnedOrder);
-        assertEquals(1L, returnedOrder.getId()); // Now this should match
-        assertEquals("test", returnedOrder.getUser().getUsername());
-        assertEquals(2L, returnedOrder.getItems().get(0).getId()); // Ensure the correct item ID
-        assertEquals(1, returnedOrder.getItems().size());
+        assertEquals(1L, returnedOrder.id()); // Now this should match
+        assertEquals("test", returnedOrder.user().username());
+        assertEquals(2L, returnedOrder.lines().get(0).itemId()); // Ensure the correct item ID
+        assertEquals("Square Widget", returnedOrder.lines().get(0).name());
+        assertEquals(1, returnedOrder.lines().get(0).quantity());
+        assertEquals(1, returnedOrder.lines().size());
+    }
+
+    @Test
+    public void submit_user_order_async() {
+        User user = new User();
+        user.setId(0L);
+        user.setUsername("test");
+        Cart mockCart = new Cart();
+        mockCart.setId(1L);
+        mockCart.setUser(user);
+        user.setCart(mockCart);
+        AuthenticatedUser principal = new AuthenticatedUser(0L, "test", 1L);
+        when(cartRepo.findWithLinesById(1L)).thenReturn(Optional.of(mockCart));
+        OrderSubmission submission = new OrderSubmission("abc", "test", Instant.now());
+        when(submissionQueue.submit(mockCart)).thenReturn(submission);
+        when(submissionQueue.getStatus("abc")).thenReturn(submission);
+
+        ResponseEntity<OrderSubmission> response = orderController.submitAsync("test", principal);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/order/submission/abc", response.getHeaders().getLocation().toString());
+        assertEquals(OrderSubmission.Status.PENDING, response.getBody().getStatus());
+        assertEquals(HttpStatus.OK, orderController.getSubmission("abc", principal).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, orderController.getSubmission("missing", principal).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, orderController.getSubmission("abc",
+                new AuthenticatedUser(9L, "nobody", 9L)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, orderController.submitAsync("nobody", principal).getStatusCode());
+    }
+
+    @Test
+    public void history_page_links_to_older_orders() {
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "test", 8L);
+        List<OrderSummary> summaries = new ArrayList<>();
+        for (long id = 30; id > 27; id--) {
+            OrderSummary summary = mock(OrderSummary.class);
+            when(summary.getId()).thenReturn(id);
+            summaries.add(summary);
+        }
+        when(orderRepo.findSummaries(eq(7L), eq(Long.MAX_VALUE), any(Limit.class))).thenReturn(summaries);
+
+        ResponseEntity<List<OrderSummary>> response = orderController.getOrdersForUser("test", null, 2, principal);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().size());
+        assertEquals("</api/order/history/test?before=29&size=2>; rel=\"next\"",
+                response.getHeaders().getFirst(HttpHeaders.LINK));
+        assertEquals(HttpStatus.NOT_FOUND, orderController.getOrdersForUser("nobody", null, null, principal).getStatusCode());
+
+        AuthenticatedUser awkward = new AuthenticatedUser(7L, "a b/c&d", 8L);
+        assertEquals("</api/order/history/a%20b%2Fc%26d?before=29&size=2>; rel=\"next\"",
+                orderController.getOrdersForUser("a b/c&d", null, 2, awkward).getHeaders().getFirst(HttpHeaders.LINK));
     }
 }
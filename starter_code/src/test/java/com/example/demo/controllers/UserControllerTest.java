@@ -6,19 +6,29 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.UserCache;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.service.UserImporter;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Optional;
 
 public class UserControllerTest {
@@ -27,16 +37,14 @@ public class UserControllerTest {
 
     private UserRepository userRepo=mock(UserRepository.class);
 
-    private CartRepository cartRepo=mock(CartRepository.class);
-
     private BCryptPasswordEncoder encoder=mock(BCryptPasswordEncoder.class);
 
     @BeforeEach
     public void setUp() {
         userController = new UserController();
         TestUtils.injectObjects(userController, "userRepository", userRepo);
-        TestUtils.injectObjects(userController, "cartRepository", cartRepo);
         TestUtils.injectObjects(userController, "bCryptPasswordEncoder", encoder);
+        TestUtils.injectObjects(userController, "userCache", new UserCache(userRepo, 100, Duration.ofMinutes(5)));
 
     }
 
@@ -52,16 +60,18 @@ public class UserControllerTest {
         r.setConfirmPassword("testPassword");
 
         // run method to test from controller with provided request details
-        final ResponseEntity<User> response = userController.createUser(r);
+        final ResponseEntity<UserResponse> response = userController.createUser(r);
 
         // Check response is as expected
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        User u = response.getBody();
+        UserResponse u = response.getBody();
         assertNotNull(u);
-        assertEquals(0, u.getId());
-        assertEquals("test",u.getUsername());
-        assertEquals("thisIsHashed", u.getPassword());
+        assertEquals(0, u.id());
+        assertEquals("test",u.username());
+        // the stored user carries the hash and its cart
+        verify(userRepo, times(1)).save(argThat(saved -> "thisIsHashed".equals(saved.getPassword())
+                && saved.getCart() != null && saved.getCart().getUser() == saved));
     }
 
     @Test
@@ -72,15 +82,17 @@ public class UserControllerTest {
         r.setPassword("short");
         r.setConfirmPassword("short");
 
-        final ResponseEntity<User> response = userController.createUser(r);
+        final ResponseEntity<UserResponse> response = userController.createUser(r);
 
         assertNotNull(response);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
 
-        User u = response.getBody();
+        UserResponse u = response.getBody();
 
         assertNull(u);
+        verify(userRepo, never()).save(any(User.class));
+        verify(encoder, never()).encode(any());
     }
 
     @Test
@@ -94,20 +106,20 @@ public class UserControllerTest {
         // Mock the behavior of finding the user by username
         when(userRepo.findByUsername("testUser")).thenReturn(mockUser);
 
-        final ResponseEntity<User> response = userController.findByUserName("testUser");
+        final ResponseEntity<UserResponse> response = userController.findByUserName("testUser");
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        User u = response.getBody();
+        UserResponse u = response.getBody();
         assertNotNull(u);
-        assertEquals(0L, u.getId());
-        assertEquals("testUser", u.getUsername());
+        assertEquals(0L, u.id());
+        assertEquals("testUser", u.username());
     }
 
     @Test
     public void get_user_username_does_not_exist() throws Exception {
-        final ResponseEntity<User> response = userController.findByUserName("fakeUser");
+        final ResponseEntity<UserResponse> response = userController.findByUserName("fakeUser");
 
         assertNotNull(response);
 
@@ -136,24 +148,35 @@ public class UserControllerTest {
         // Mock the behavior of finding the user by ID
         when(userRepo.findById(0L)).thenReturn(Optional.of(mockUser));
 
-        final ResponseEntity<User> response = userController.findById(0L);
+        final ResponseEntity<UserResponse> response = userController.findById(0L);
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        User u = response.getBody();
+        UserResponse u = response.getBody();
         assertNotNull(u);
-        assertEquals(0L, u.getId());
-        assertEquals("testUser", u.getUsername());
+        assertEquals(0L, u.id());
+        assertEquals("testUser", u.username());
     }
 
     @Test
     public void get_user_id_does_not_exist() throws Exception {
-        final ResponseEntity<User> response = userController.findById(10L);
+        final ResponseEntity<UserResponse> response = userController.findById(10L);
 
         assertNotNull(response);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void import_is_not_found_unless_enabled() throws Exception {
+        UserImporter importer = mock(UserImporter.class);
+        TestUtils.injectObjects(userController, "userImporter", importer);
+
+        ResponseEntity<?> response = userController.importUsers(MediaType.valueOf("text/csv"),
+                new ByteArrayInputStream("alice,password1".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(importer, never()).importUsers(any(), any());
+    }
+}
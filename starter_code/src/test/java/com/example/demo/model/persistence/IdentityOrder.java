@@ -0,0 +1,60 @@
+package com.example.demo.model.persistence;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test-only copy of {@link UserOrder} with the IDENTITY id orders had before
+ * they moved to a pooled sequence, so the batching tests can measure the old
+ * statement count next to the new one.
+ */
+@Entity
+@Table(name = "identity_order")
+public class IdentityOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ElementCollection
+    @CollectionTable(name = "identity_order_line", joinColumns = @JoinColumn(name = "order_id"))
+    @OrderColumn(name = "line_number")
+    private List<OrderLine> lines = new ArrayList<>();
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false, referencedColumnName = "id")
+    private User user;
+
+    @Column
+    private BigDecimal total;
+
+    public IdentityOrder() {
+    }
+
+    public IdentityOrder(User user, List<OrderLine> lines, BigDecimal total) {
+        this.user = user;
+        this.lines = lines;
+        this.total = total;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class CartRepositoryTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void add_and_remove_update_line_and_total_in_place() {
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        Long cartId = cartRepository.save(cart).getId();
+        Item item = itemRepository.findById(1L).get();
+
+        assertTrue(cartRepository.addItems(cartId, item, 10_000));
+        assertTrue(cartRepository.addItems(cartId, item, 5));
+        assertTrue(cartRepository.removeItems(cartId, item, 3));
+
+        Cart stored = cartRepository.findById(cartId).get();
+        assertEquals(1, stored.getLines().size());
+        assertEquals(10_002, stored.getLines().get(0).getQuantity());
+        assertEquals(0, item.getPrice().multiply(BigDecimal.valueOf(10_002)).compareTo(stored.getTotal()));
+
+        assertTrue(cartRepository.removeItems(cartId, item, 20_000));
+        stored = cartRepository.findById(cartId).get();
+        assertEquals(0, stored.getLines().size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(stored.getTotal()));
+    }
+
+    @Test
+    public void carts_saved_together_are_batched() {
+        Item round = itemRepository.findById(1L).get();
+        Item square = itemRepository.findById(2L).get();
+        Statistics stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        List<Cart> carts = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Cart cart = new Cart();
+            cart.setTotal(BigDecimal.ZERO);
+            cart.addItem(round, 2);
+            cart.addItem(square);
+            carts.add(cart);
+        }
+        cartRepository.saveAll(carts);
+        entityManager.flush();
+
+        assertEquals(180, stats.getEntityInsertCount());
+        assertEquals(0, stats.getEntityUpdateCount());
+        assertTrue(stats.getPrepareStatementCount() <= 10, "statements: " + stats.getPrepareStatementCount());
+    }
+
+    @Test
+    public void cart_with_lines_loads_in_one_query() {
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        Long cartId = cartRepository.save(cart).getId();
+        cartRepository.addItems(cartId, itemRepository.findById(1L).get(), 2);
+        cartRepository.addItems(cartId, itemRepository.findById(2L).get(), 1);
+        entityManager.clear();
+        Statistics stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        Cart stored = cartRepository.findWithLinesById(cartId).get();
+
+        assertTrue(Hibernate.isInitialized(stored.getLines()));
+        assertEquals(2, stored.getLines().size());
+        assertEquals(3, stored.getLines().stream().mapToInt(CartLine::getQuantity).sum());
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    public void unknown_cart_is_reported() {
+        Item item = itemRepository.findById(1L).get();
+
+        assertFalse(cartRepository.addItems(-1L, item, 1));
+        assertFalse(cartRepository.removeItems(-1L, item, 1));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.IdentityOrder;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class OrderRepositoryTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void history_pages_newest_first_without_loading_lines() {
+        User user = user("history");
+        Item round = itemRepository.findById(1L).get();
+        Item square = itemRepository.findById(2L).get();
+        Long first = save(user, Collections.singletonList(new OrderLine(1L, "Round Widget", 1, round.getPrice())));
+        Long second = save(user, Arrays.asList(new OrderLine(1L, "Round Widget", 1, round.getPrice()),
+                new OrderLine(2L, "Square Widget", 2, square.getPrice())));
+        Long third = save(user, Collections.singletonList(new OrderLine(2L, "Square Widget", 1, square.getPrice())));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<OrderSummary> page = orderRepository.findSummaries(user.getId(), Long.MAX_VALUE, Limit.of(2));
+        assertEquals(2, page.size());
+        assertEquals(third, page.get(0).getId());
+        assertEquals(second, page.get(1).getId());
+        assertEquals(3, page.get(1).getItemCount());
+        assertNotNull(page.get(1).getCreatedAt());
+
+        page = orderRepository.findSummaries(user.getId(), second, Limit.of(2));
+        assertEquals(1, page.size());
+        assertEquals(first, page.get(0).getId());
+
+        UserOrder order = orderRepository.findWithLinesById(second).get();
+        assertTrue(Hibernate.isInitialized(order.getLines()));
+        assertEquals(2, order.getLines().size());
+        assertEquals("Square Widget", order.getLines().get(1).getName());
+        assertEquals("history", order.getUser().getUsername());
+    }
+
+    @Test
+    public void large_order_is_a_few_statements_and_no_catalog_writes() {
+        User user = user("bulk");
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setTotal(BigDecimal.ZERO);
+        cart.addItem(itemRepository.findById(1L).get(), 600);
+        cart.addItem(itemRepository.findById(2L).get(), 400);
+        entityManager.flush();
+        Statistics stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        orderRepository.save(UserOrder.createFromCart(cart));
+        entityManager.flush();
+
+        assertEquals(0, stats.getEntityUpdateCount());
+        assertEquals(1, stats.getEntityInsertCount());
+        assertEquals(1, stats.getCollectionRecreateCount());
+        assertTrue(stats.getPrepareStatementCount() <= 2, "statements: " + stats.getPrepareStatementCount());
+    }
+
+    @Test
+    public void orders_saved_together_are_batched() {
+        User user = user("batch");
+        entityManager.flush();
+        Statistics stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // before: the same 40 orders with the IDENTITY ids orders used to have
+        stats.clear();
+        for (int i = 0; i < 40; i++) {
+            entityManager.persist(new IdentityOrder(user, lines(i), BigDecimal.ONE));
+        }
+        entityManager.flush();
+        long identityInserts = stats.getEntityInsertCount();
+        long identityStatements = stats.getPrepareStatementCount();
+
+        // after: the sequence-mapped orders
+        stats.clear();
+        List<UserOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            UserOrder order = new UserOrder();
+            order.setUser(user);
+            order.setLines(lines(i));
+            order.setTotal(BigDecimal.ONE);
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+        entityManager.flush();
+        long sequenceInserts = stats.getEntityInsertCount();
+        long sequenceStatements = stats.getPrepareStatementCount();
+
+        // IDENTITY runs one insert per order to learn its id, only the lines batch
+        assertEquals(40, identityInserts);
+        assertEquals(40, sequenceInserts);
+        assertEquals(41, identityStatements);
+        assertTrue(sequenceStatements <= 4, "sequence statements: " + sequenceStatements);
+    }
+
+    private static List<OrderLine> lines(int i) {
+        return Arrays.asList(new OrderLine(1L, "Round Widget", i + 1, new BigDecimal("2.99")),
+                new OrderLine(2L, "Square Widget", 1, new BigDecimal("1.99")));
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret-password");
+        return userRepository.save(user);
+    }
+
+    private Long save(User user, List<OrderLine> lines) {
+        UserOrder order = new UserOrder();
+        order.setUser(user);
+        order.setLines(lines);
+        order.setTotal(lines.stream().map(OrderLine::getSubtotal).reduce(BigDecimal.ZERO, BigDecimal::add));
+        return orderRepository.save(order).getId();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.service.CartUpdater;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the signup, cart and checkout data paths on virtual threads, with more
+ * tasks than pooled connections, and fails if any of them parks while pinned
+ * to its carrier (blocking inside a {@code synchronized} block or a native
+ * frame), which would quietly cap request concurrency at the carrier count
+ * when {@code spring.threads.virtual.enabled=true}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class VirtualThreadPinningTest {
+
+    private static final int TASKS = 200;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    public void data_paths_do_not_pin_virtual_threads() throws Exception {
+        Item item = itemRepository.findById(1L).get();
+        CartUpdater cartUpdater = new CartUpdater(cartRepository, 5, 64);
+        Long sharedCartId = userRepository.save(user("pinning-shared")).getCart().getId();
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    String username = "pinning-" + i;
+                    tasks.add(executor.submit(() -> {
+                        User user = userRepository.save(user(username));
+                        Long cartId = user.getCart().getId();
+                        cartUpdater.addItems(cartId, item, 2);
+                        cartUpdater.addItems(sharedCartId, item, 1);
+                        // checkout as the order controller does it: cart and lines in one query, then the insert
+                        orderRepository.save(UserOrder.createFromCart(cartRepository.findWithLinesById(cartId).get()));
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+            recording.stop();
+        }
+
+        assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned parks, first at:\n" + describe(pinned.get(0)));
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("unused");
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        cart.setUser(user);
+        user.setCart(cart);
+        return user;
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(no stack trace)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(20)
+                .map(RecordedFrame::getMethod)
+                .map(method -> "  " + method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining("\n"));
+    }
+}
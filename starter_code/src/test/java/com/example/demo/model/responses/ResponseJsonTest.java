@@ -0,0 +1,111 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Responses must serialize exactly like the entities the endpoints used to
+ * return, so clients see the same JSON.
+ */
+public class ResponseJsonTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new BlackbirdModule())
+            .build();
+
+    @Test
+    public void cart_response_matches_the_cart_entity() throws Exception {
+        Cart cart = cart();
+
+        String json = objectMapper.writeValueAsString(CartResponse.of(cart, UserResponse.of(cart.getUser())));
+
+        assertEquals(objectMapper.writeValueAsString(cart), json);
+    }
+
+    @Test
+    public void expanded_cart_response_lists_every_unit() throws Exception {
+        Cart cart = cart();
+
+        CartResponse response = CartResponse.of(cart, UserResponse.of(cart.getUser()), true);
+
+        assertEquals(3, response.items().size());
+        assertEquals(response.items().get(0), response.items().get(1));
+        assertTrue(objectMapper.writeValueAsString(response).endsWith(",\"items\":[" + String.join(",",
+                objectMapper.writeValueAsString(response.items().get(0)),
+                objectMapper.writeValueAsString(response.items().get(1)),
+                objectMapper.writeValueAsString(response.items().get(2))) + "]}"));
+    }
+
+    @Test
+    public void cart_response_size_does_not_grow_with_quantity() throws Exception {
+        Cart small = cart();
+        Cart large = cart();
+        large.addItem(large.getLines().get(0).getItem(), 10_000);
+
+        String smallJson = objectMapper.writeValueAsString(CartResponse.of(small, UserResponse.of(small.getUser())));
+        String largeJson = objectMapper.writeValueAsString(CartResponse.of(large, UserResponse.of(large.getUser())));
+
+        assertFalse(largeJson.contains("\"items\""));
+        // only the quantity digits and total differ
+        assertTrue(largeJson.length() - smallJson.length() < 16, largeJson);
+    }
+
+    @Test
+    public void order_response_matches_the_order_entity() throws Exception {
+        Cart cart = cart();
+        UserOrder order = UserOrder.createFromCart(cart);
+        order.setId(5L);
+        order.setCreatedAt(Instant.parse("2024-01-02T03:04:05.123456Z"));
+
+        String json = objectMapper.writeValueAsString(OrderResponse.of(order, UserResponse.of(cart.getUser())));
+
+        assertEquals(objectMapper.writeValueAsString(order), json);
+    }
+
+    @Test
+    public void user_response_has_no_password() throws Exception {
+        User user = cart().getUser();
+
+        String json = objectMapper.writeValueAsString(UserResponse.of(user));
+
+        assertEquals("{\"id\":3,\"username\":\"alice\"}", json);
+        assertFalse(json.contains("hash"));
+    }
+
+    private static Cart cart() {
+        User user = new User();
+        user.setId(3L);
+        user.setUsername("alice");
+        user.setPassword("hash");
+        Cart cart = new Cart();
+        cart.setId(4L);
+        cart.setUser(user);
+        user.setCart(cart);
+        cart.setTotal(BigDecimal.ZERO);
+        cart.addItem(item(1L, "Round Widget", "2.99"), 2);
+        cart.addItem(item(2L, "Square Widget", "1.99"), 1);
+        return cart;
+    }
+
+    private static Item item(long id, String name, String price) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(new BigDecimal(price));
+        item.setDescription("A " + name);
+        return item;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.search;
+
+import com.example.demo.model.persistence.Item;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ItemSearchIndexTest {
+
+    @Test
+    public void ranks_name_matches_above_description_matches() {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.update(Arrays.asList(
+                item(1L, "Square Widget", "A widget that is square"),
+                item(2L, "Round Widget", "A widget that is round"),
+                item(3L, "Round Gadget", "Not a widget at all")));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(index.search("widget", 10)));
+        assertEquals(Arrays.asList(2L, 3L), ids(index.search("ROUND", 10)));
+        assertEquals(Arrays.asList(2L, 3L), ids(index.search("round widget", 10)));
+        assertEquals(Collections.singletonList(2L), ids(index.search("Round Widget", 1)));
+    }
+
+    @Test
+    public void matches_word_prefixes_and_requires_every_word() {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.update(Arrays.asList(
+                item(1L, "Square Widget", "A widget that is square"),
+                item(2L, "Round Widget", "A widget that is round")));
+
+        assertEquals(Arrays.asList(1L, 2L), ids(index.search("wid", 10)));
+        assertEquals(Collections.singletonList(1L), ids(index.search("squ wid", 10)));
+        assertTrue(index.search("squ gadget", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void update_reindexes_only_changed_items() {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.update(Arrays.asList(
+                item(1L, "Square Widget", "square"),
+                item(2L, "Round Widget", "round")));
+
+        index.update(Arrays.asList(
+                item(1L, "Square Gizmo", "square"),
+                item(3L, "Oval Widget", "oval")));
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList(3L), ids(index.search("widget", 10)));
+        assertEquals(Collections.singletonList(1L), ids(index.search("gizmo", 10)));
+        assertTrue(index.search("round", 10).isEmpty());
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    private static Item item(Long id, String name, String description) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(description);
+        item.setPrice(BigDecimal.ONE);
+        return item;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class JWTAuthenticationVerficationFilterTest {
+
+    private final TokenKeyRing keyRing = TokenKeyRing.generated("ES256");
+    private final JWTAuthenticationVerficationFilter filter = new JWTAuthenticationVerficationFilter(
+            mock(AuthenticationManager.class), new TokenVerificationCache(null, keyRing, 100),
+            new TokenRevocationList(1_000, 0.01));
+    private final AuthenticatedUser alice = new AuthenticatedUser(7L, "alice", 8L);
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void valid_token_authenticates() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse res = filter(new TokenSigner(keyRing).sign(alice), chain);
+
+        assertEquals(200, res.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(alice.getUsername(),
+                ((AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername());
+    }
+
+    @Test
+    public void expired_token_gets_401_telling_the_client_to_refresh() throws Exception {
+        String expired = new TokenSigner(keyRing, Duration.ofMinutes(-1), Duration.ofDays(1)).sign(alice);
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse res = filter(expired, chain);
+
+        assertEquals(401, res.getStatus());
+        assertTrue(res.getHeader(HttpHeaders.WWW_AUTHENTICATE).startsWith("Bearer error=\"invalid_token\""));
+        assertTrue(res.getHeader(HttpHeaders.WWW_AUTHENTICATE).contains("expired"));
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    public void malformed_token_gets_401() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse res = filter("not.a-token", chain);
+
+        assertEquals(401, res.getStatus());
+        assertTrue(res.getHeader(HttpHeaders.WWW_AUTHENTICATE).startsWith("Bearer error=\"invalid_token\""));
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse filter(String token, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        filter.doFilter(req, res, chain);
+        return res;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoginCredentialsParserTest {
+
+    private final LoginCredentialsParser parser = new LoginCredentialsParser(256);
+
+    @Test
+    public void reads_username_and_password_and_skips_the_rest() throws IOException {
+        LoginCredentials credentials = parse(
+                "{\"id\":3,\"cart\":{\"items\":[1,2]},\"username\":\"alice\",\"password\":\"p\\u00e4ss\",\"extra\":null}");
+
+        assertEquals("alice", credentials.getUsername());
+        assertEquals("päss", credentials.getPassword());
+    }
+
+    @Test
+    public void missing_fields_are_null() throws IOException {
+        LoginCredentials credentials = parse("{\"username\":\"alice\"}");
+
+        assertEquals("alice", credentials.getUsername());
+        assertNull(credentials.getPassword());
+    }
+
+    @Test
+    public void malformed_bodies_are_rejected() {
+        assertThrows(JsonProcessingException.class, () -> parse("[\"alice\",\"password\"]"));
+        assertThrows(JsonProcessingException.class, () -> parse("{\"username\":{\"name\":\"alice\"}}"));
+        assertThrows(JsonProcessingException.class, () -> parse("{\"username\":\"alice\""));
+        assertThrows(JsonProcessingException.class, () -> parse(""));
+    }
+
+    @Test
+    public void long_bodies_are_rejected_with_or_without_a_length() {
+        String padding = "x".repeat(300);
+        String body = "{\"username\":\"alice\",\"padding\":\"" + padding + "\",\"password\":\"password\"}";
+
+        assertThrows(LoginBodyTooLargeException.class, () -> parse(body));
+
+        MockHttpServletRequest declared = new MockHttpServletRequest();
+        declared.setContent(body.getBytes(StandardCharsets.UTF_8));
+        assertThrows(LoginBodyTooLargeException.class, () -> parser.parse(declared));
+    }
+
+    private LoginCredentials parse(String body) throws IOException {
+        return parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
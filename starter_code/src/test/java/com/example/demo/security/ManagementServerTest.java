@@ -0,0 +1,42 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+public class ManagementServerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void actuator_is_scraped_without_a_token_on_the_management_port_only() {
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        assertTrue(scrape.getBody().contains("security_jwt_verify"));
+        assertEquals(HttpStatus.FORBIDDEN, restTemplate.getForEntity(
+                "http://127.0.0.1:" + port + "/actuator/prometheus", String.class).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, restTemplate.getForEntity(
+                "http://127.0.0.1:" + port + "/api/item", String.class).getStatusCode());
+    }
+}
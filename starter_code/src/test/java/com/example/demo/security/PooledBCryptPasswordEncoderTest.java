@@ -0,0 +1,73 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PooledBCryptPasswordEncoderTest {
+
+    private PooledBCryptPasswordEncoder encoder;
+
+    @AfterEach
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void encode_and_match_through_pool() {
+        encoder = new PooledBCryptPasswordEncoder(4, 2, 4, Duration.ofSeconds(5));
+        String hash = encoder.encode("testPassword");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("testPassword", hash));
+    }
+
+    @Test
+    public void rejects_when_pool_is_saturated() throws Exception {
+        // one slow hash runs, one waits in the queue, the rest must be turned away
+        encoder = new PooledBCryptPasswordEncoder(14, 1, 1, Duration.ofSeconds(30));
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> encoder.encode("testPassword"), callers));
+        }
+
+        int rejected = 0;
+        for (CompletableFuture<String> call : calls) {
+            try {
+                call.get();
+            } catch (ExecutionException e) {
+                assertInstanceOf(PasswordHashingRejectedException.class, e.getCause());
+                rejected++;
+            }
+        }
+        callers.shutdown();
+        assertTrue(rejected >= 2);
+        assertEquals(rejected, encoder.getRejected());
+    }
+
+    @Test
+    public void sheds_requests_that_would_wait_past_the_timeout() {
+        encoder = new PooledBCryptPasswordEncoder(4, 2, 16, Duration.ofSeconds(1));
+        encoder.recordHash(Duration.ofMillis(400).toNanos());
+
+        // an idle queue always admits, even when hashes have been slow
+        assertFalse(encoder.wouldTimeOut(0));
+        // two queued hashes over two threads: 400 ms ahead plus 400 ms of its own
+        assertFalse(encoder.wouldTimeOut(2));
+        // four queued hashes: 800 ms ahead plus its own is past the second
+        assertTrue(encoder.wouldTimeOut(4));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenKeyRingTest {
+
+    private static final String PASSWORD = "changeit";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void keys_are_rotated_and_retired_without_a_restart() throws Exception {
+        Path store = directory.resolve("jwt.p12");
+        keytool(store, "-genkeypair", "-alias", "2026-01", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=shop");
+        TokenKeyRing keyRing = new TokenKeyRing(store.toString(), PASSWORD, "", "ES256", false);
+        AtomicInteger removals = new AtomicInteger();
+        keyRing.addRemovalListener(removals::incrementAndGet);
+        String first = new TokenSigner(keyRing).sign(new AuthenticatedUser(1L, "alice", 2L));
+        assertEquals("2026-01", JWT.decode(first).getKeyId());
+        assertEquals("ES256", JWT.decode(first).getAlgorithm());
+
+        keytool(store, "-genkeypair", "-alias", "2026-02", "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=shop");
+        touch(store);
+        keyRing.reloadIfChanged();
+        String second = new TokenSigner(keyRing).sign(new AuthenticatedUser(1L, "alice", 2L));
+        DecodedJWT decoded = JWT.decode(second);
+        assertEquals("2026-02", decoded.getKeyId());
+        assertEquals("RS256", decoded.getAlgorithm());
+        // tokens from the previous key stay valid until it is removed
+        keyRing.getVerifier("2026-01").verify(first);
+        keyRing.getVerifier("2026-02").verify(second);
+        assertEquals(0, removals.get());
+
+        keytool(store, "-delete", "-alias", "2026-01");
+        touch(store);
+        keyRing.reloadIfChanged();
+        assertNull(keyRing.getVerifier("2026-01"));
+        assertNull(keyRing.getVerifier(null));
+        assertEquals(1, removals.get());
+    }
+
+    @Test
+    public void public_keys_are_published_and_secrets_are_not() throws Exception {
+        Path store = directory.resolve("jwt.p12");
+        keytool(store, "-genkeypair", "-alias", "ec", "-keyalg", "EC", "-groupname", "secp256r1", "-dname", "CN=shop");
+        keytool(store, "-genseckey", "-alias", "hmac", "-keyalg", "HmacSHA512", "-keysize", "512");
+        TokenKeyRing keyRing = new TokenKeyRing(store.toString(), PASSWORD, "ec", "ES256", true);
+
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (TokenKey key : keyRing.getKeys()) {
+            if (key.toJwk() != null) {
+                jwks.add(key.toJwk());
+            }
+        }
+
+        assertEquals(2, keyRing.getKeys().size());
+        assertEquals(1, jwks.size());
+        assertEquals("ec", jwks.get(0).get("kid"));
+        assertEquals("P-256", jwks.get(0).get("crv"));
+        assertEquals(43, ((String) jwks.get(0).get("x")).length());
+        assertNotNull(keyRing.getVerifier("hmac"));
+        assertNotNull(keyRing.getVerifier(null));
+    }
+
+    @Test
+    public void hs512_without_a_keystore_does_not_start() {
+        assertThrows(IllegalStateException.class, () -> new TokenKeyRing("", "", "", "HS512", false));
+        assertNull(new TokenKeyRing("", "", "", "ES256", false).getVerifier(null));
+    }
+
+    private static void keytool(Path store, String... args) throws Exception {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-keystore", store.toString(), "-storetype", "PKCS12",
+                "-storepass", PASSWORD, "-keypass", PASSWORD));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertEquals(0, process.waitFor(), output);
+    }
+
+    // keytool may rewrite the file within the same millisecond
+    private static void touch(Path store) throws Exception {
+        Files.setLastModifiedTime(store, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+    }
+}
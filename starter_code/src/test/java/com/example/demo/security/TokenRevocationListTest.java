@@ -0,0 +1,62 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenRevocationListTest {
+
+    private final TokenRevocationList revocations = new TokenRevocationList(1_000, 0.01);
+
+    @Test
+    public void revoked_ids_are_revoked_once() {
+        long tomorrow = System.currentTimeMillis() + 86_400_000L;
+
+        assertTrue(revocations.revoke("a", tomorrow));
+        assertFalse(revocations.revoke("a", tomorrow));
+        assertFalse(revocations.revoke(null, tomorrow));
+
+        assertTrue(revocations.isRevoked("a"));
+        assertFalse(revocations.isRevoked("b"));
+        assertFalse(revocations.isRevoked(null));
+    }
+
+    @Test
+    public void filter_answers_almost_all_unrevoked_ids_alone() {
+        long tomorrow = System.currentTimeMillis() + 86_400_000L;
+        for (int i = 0; i < 1_000; i++) {
+            revocations.revoke(UUID.randomUUID().toString(), tomorrow);
+        }
+
+        int revoked = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (revocations.isRevoked(UUID.randomUUID().toString())) {
+                revoked++;
+            }
+        }
+
+        assertEquals(0, revoked);
+        // sized for 1% false positives
+        assertTrue(revocations.getFalsePositives() < 300, "false positives: " + revocations.getFalsePositives());
+    }
+
+    @Test
+    public void expired_ids_are_purged() {
+        long now = System.currentTimeMillis();
+        revocations.revoke("expired", now - 1);
+        revocations.revoke("live", now + 86_400_000L);
+
+        revocations.purge();
+
+        assertEquals(1, revocations.size());
+        assertFalse(revocations.isRevoked("expired"));
+        assertTrue(revocations.isRevoked("live"));
+        // ids revoked after the rebuild land in the new filter
+        assertTrue(revocations.revoke("later", now + 86_400_000L));
+        assertTrue(revocations.isRevoked("later"));
+    }
+}
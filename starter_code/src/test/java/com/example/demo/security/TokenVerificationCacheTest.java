@@ -0,0 +1,124 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.cache.UserCache;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenVerificationCacheTest {
+
+    private final UserRepository userRepo = mock(UserRepository.class);
+    private final TokenKeyRing keyRing = TokenKeyRing.generated("ES256", true);
+    private final TokenVerificationCache cache =
+            new TokenVerificationCache(new UserCache(userRepo, 100, Duration.ofMinutes(5)), keyRing, 100);
+
+    @Test
+    public void ids_come_from_the_token_without_a_lookup() {
+        String token = new TokenSigner(keyRing).sign(new AuthenticatedUser(7L, "alice", 8L));
+
+        AuthenticatedUser user = cache.verify(token);
+
+        assertEquals(7L, user.getId());
+        assertEquals("alice", user.getUsername());
+        assertEquals(8L, user.getCartId());
+        assertSame(user, cache.verify(token));
+        verify(userRepo, never()).findByUsername(anyString());
+    }
+
+    @Test
+    public void tokens_without_id_claims_are_resolved_once_by_username() {
+        User stored = new User();
+        stored.setId(3L);
+        stored.setUsername("bob");
+        Cart cart = new Cart();
+        cart.setId(4L);
+        stored.setCart(cart);
+        when(userRepo.findByUsername("bob")).thenReturn(stored);
+        String legacy = legacyToken("bob");
+
+        AuthenticatedUser user = cache.verify(legacy);
+        cache.verify(legacy);
+
+        assertEquals(3L, user.getId());
+        assertEquals(4L, user.getCartId());
+        verify(userRepo, times(1)).findByUsername("bob");
+        assertNull(cache.verify(legacyToken("deleted")));
+    }
+
+    @Test
+    public void legacy_tokens_are_only_accepted_when_enabled_and_within_the_old_lifetime() {
+        User stored = new User();
+        stored.setId(3L);
+        stored.setUsername("bob");
+        stored.setCart(new Cart());
+        when(userRepo.findByUsername("bob")).thenReturn(stored);
+        TokenVerificationCache strict = new TokenVerificationCache(
+                new UserCache(userRepo, 100, Duration.ofMinutes(5)), TokenKeyRing.generated("ES256"), 100);
+        String forged = JWT.create()
+                .withSubject("bob")
+                .withClaim(SecurityConstants.USER_ID_CLAIM, 1L)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000L))
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+
+        assertThrows(JWTVerificationException.class, () -> strict.verify(legacyToken("bob")));
+        assertThrows(JWTVerificationException.class, () -> cache.verify(JWT.create()
+                .withSubject("bob")
+                .withExpiresAt(new Date(System.currentTimeMillis() + TokenKeyRing.LEGACY_TOKEN_TTL + 60_000L))
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()))));
+        assertThrows(JWTVerificationException.class, () -> cache.verify(JWT.create()
+                .withSubject("bob")
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()))));
+        // id claims in a token anyone can sign are not trusted
+        assertEquals(3L, cache.verify(forged).getId());
+    }
+
+    @Test
+    public void tokens_signed_with_an_unknown_key_are_rejected() {
+        String foreign = new TokenSigner(TokenKeyRing.generated("ES256")).sign(new AuthenticatedUser(7L, "alice", 8L));
+
+        assertThrows(JWTVerificationException.class, () -> cache.verify(foreign));
+    }
+
+    @Test
+    public void refresh_tokens_only_verify_as_refresh_tokens() {
+        TokenSigner signer = new TokenSigner(keyRing);
+        AuthenticatedUser alice = new AuthenticatedUser(7L, "alice", 8L);
+        String access = signer.sign(alice);
+        String refresh = signer.signRefreshToken(alice);
+
+        assertNull(cache.verify(refresh));
+        assertNull(cache.verifyRefreshToken(access));
+        AuthenticatedUser user = cache.verifyRefreshToken(refresh);
+        assertEquals(7L, user.getId());
+        assertEquals(8L, user.getCartId());
+        assertNotNull(user.getTokenId());
+        assertNotEquals(cache.verify(access).getTokenId(), user.getTokenId());
+    }
+
+    private static String legacyToken(String subject) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 3_600_000L))
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class CartUpdaterConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void concurrent_adds_are_never_lost_with_optimistic_retries_only() throws Exception {
+        CartUpdater updater = new CartUpdater(cartRepository, 100, 0);
+        Long cartId = newCart();
+        Item item = itemRepository.findById(1L).get();
+
+        runConcurrently(() -> updater.addItems(cartId, item, 1));
+
+        Cart cart = load(cartId);
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, cart.getLines().get(0).getQuantity());
+        assertTotalMatchesLines(cart);
+    }
+
+    @Test
+    public void total_matches_lines_under_mixed_updates_with_striped_locks() throws Exception {
+        CartUpdater updater = new CartUpdater(cartRepository, 5, 16);
+        Long cartId = newCart();
+        List<Item> items = itemRepository.findAll();
+
+        runConcurrently(() -> {
+            Item item = items.get(ThreadLocalRandom.current().nextInt(items.size()));
+            int quantity = ThreadLocalRandom.current().nextInt(1, 5);
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                updater.addItems(cartId, item, quantity);
+            } else {
+                updater.removeItems(cartId, item, quantity);
+            }
+        });
+
+        assertTotalMatchesLines(load(cartId));
+    }
+
+    private void runConcurrently(Runnable operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    operation.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+    }
+
+    private Long newCart() {
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        return cartRepository.save(cart).getId();
+    }
+
+    private Cart load(Long cartId) {
+        return transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findById(cartId).get();
+            cart.getLines().size();
+            return cart;
+        });
+    }
+
+    private static void assertTotalMatchesLines(Cart cart) {
+        BigDecimal expected = BigDecimal.ZERO;
+        for (CartLine line : cart.getLines()) {
+            expected = expected.add(line.getSubtotal());
+        }
+        assertEquals(0, expected.compareTo(cart.getTotal()),
+                "total " + cart.getTotal() + " does not match lines " + expected);
+    }
+}
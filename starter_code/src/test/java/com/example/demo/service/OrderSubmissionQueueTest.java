@@ -0,0 +1,211 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderSubmissionQueueTest {
+
+    private final OrderRepository orderRepo = mock(OrderRepository.class);
+    private final UserRepository userRepo = mock(UserRepository.class);
+    private final TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private final AtomicLong ids = new AtomicLong();
+    private OrderSubmissionQueue queue;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void queued_orders_are_persisted_and_completed() throws Exception {
+        stubRepositories(-1L);
+        queue = new OrderSubmissionQueue(orderRepo, userRepo, tx, 10, 1, 5,
+                Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        OrderSubmission submission = queue.submit(cart(1L));
+        assertSame(submission, queue.getStatus(submission.getId()));
+
+        awaitDone(submission);
+        assertEquals(OrderSubmission.Status.COMPLETED, submission.getStatus());
+        assertNotNull(submission.getOrderId());
+        assertNotNull(submission.getCompletedAt());
+    }
+
+    @Test
+    public void failed_batch_is_retried_order_by_order() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        stubRepositories(2L);
+        when(userRepo.getReferenceById(99L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return user(99L);
+        });
+        queue = new OrderSubmissionQueue(orderRepo, userRepo, tx, 10, 1, 5,
+                Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        // the first order holds the worker so the next three are taken as one batch
+        OrderSubmission blocker = queue.submit(cart(99L));
+        OrderSubmission good = queue.submit(cart(1L));
+        OrderSubmission bad = queue.submit(cart(2L));
+        OrderSubmission other = queue.submit(cart(3L));
+        release.countDown();
+
+        for (OrderSubmission s : List.of(blocker, good, bad, other)) {
+            awaitDone(s);
+        }
+        assertEquals(OrderSubmission.Status.COMPLETED, blocker.getStatus());
+        assertEquals(OrderSubmission.Status.COMPLETED, good.getStatus());
+        assertEquals(OrderSubmission.Status.FAILED, bad.getStatus());
+        assertEquals(OrderSubmission.Status.COMPLETED, other.getStatus());
+    }
+
+    @Test
+    public void full_queue_rejects_and_shutdown_drains() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        stubRepositories(-1L);
+        when(userRepo.getReferenceById(99L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return user(99L);
+        });
+        queue = new OrderSubmissionQueue(orderRepo, userRepo, tx, 2, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        OrderSubmission blocker = queue.submit(cart(99L));
+        while (queue.getQueueDepth() > 0) {
+            Thread.sleep(5);
+        }
+        List<OrderSubmission> accepted = new ArrayList<>(List.of(queue.submit(cart(1L)), queue.submit(cart(2L))));
+        assertThrows(OrderSubmissionRejectedException.class, () -> queue.submit(cart(3L)));
+
+        release.countDown();
+        queue.shutdown();
+        accepted.add(blocker);
+        for (OrderSubmission s : accepted) {
+            assertEquals(OrderSubmission.Status.COMPLETED, s.getStatus());
+        }
+        assertThrows(OrderSubmissionRejectedException.class, () -> queue.submit(cart(4L)));
+        queue = null;
+    }
+
+    @Test
+    public void submission_racing_shutdown_is_persisted_or_rejected() throws Exception {
+        stubRepositories(-1L);
+        queue = new OrderSubmissionQueue(orderRepo, userRepo, tx, 10, 1, 5,
+                Duration.ofMinutes(1), Duration.ofSeconds(5));
+        CountDownLatch submitting = new CountDownLatch(1);
+        CountDownLatch shutDown = new CountDownLatch(1);
+        // holds the submitter inside submit() until shutdown has drained the queue
+        Cart cart = new Cart() {
+            @Override
+            public List<CartLine> getLines() {
+                submitting.countDown();
+                try {
+                    shutDown.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getLines();
+            }
+        };
+        cart.setUser(user(1L));
+        cart.setItems(Collections.singletonList(item()));
+        cart.setTotal(new BigDecimal("2.99"));
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread submitter = new Thread(() -> {
+            try {
+                outcome.set(queue.submit(cart));
+            } catch (OrderSubmissionRejectedException e) {
+                outcome.set(e);
+            }
+        });
+        submitter.start();
+
+        submitting.await(5, TimeUnit.SECONDS);
+        queue.shutdown();
+        shutDown.countDown();
+        submitter.join(5_000);
+
+        if (outcome.get() instanceof OrderSubmission) {
+            assertEquals(OrderSubmission.Status.COMPLETED, ((OrderSubmission) outcome.get()).getStatus());
+        } else {
+            assertTrue(outcome.get() instanceof OrderSubmissionRejectedException);
+        }
+        queue = null;
+    }
+
+    // saveAll fails for any batch containing an order for failingUserId
+    private void stubRepositories(long failingUserId) {
+        when(userRepo.getReferenceById(anyLong())).thenAnswer(invocation -> user(invocation.getArgument(0)));
+        when(orderRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserOrder> orders = invocation.getArgument(0);
+            for (UserOrder order : orders) {
+                if (order.getUser().getId() == failingUserId) {
+                    throw new IllegalStateException("constraint violation");
+                }
+            }
+            for (UserOrder order : orders) {
+                order.setId(ids.incrementAndGet());
+            }
+            return orders;
+        });
+    }
+
+    private static void awaitDone(OrderSubmission submission) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (submission.getStatus() == OrderSubmission.Status.PENDING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    private static Cart cart(long userId) {
+        Cart cart = new Cart();
+        cart.setUser(user(userId));
+        cart.setItems(Collections.singletonList(item()));
+        cart.setTotal(new BigDecimal("2.99"));
+        return cart;
+    }
+
+    private static Item item() {
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(new BigDecimal("2.99"));
+        return item;
+    }
+}
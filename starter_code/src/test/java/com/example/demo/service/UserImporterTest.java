@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.PooledBCryptPasswordEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserImporterTest {
+
+    private final UserRepository userRepo = mock(UserRepository.class);
+    private final TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private final AtomicLong ids = new AtomicLong();
+    private final PooledBCryptPasswordEncoder encoder =
+            new PooledBCryptPasswordEncoder(4, 1, 1, Duration.ofSeconds(5));
+    private final UserImporter importer = new UserImporter(userRepo, tx, new ObjectMapper(), encoder, true, 2, 2);
+
+    @AfterEach
+    public void tearDown() {
+        importer.shutdown();
+        encoder.shutdown();
+    }
+
+    @Test
+    public void csv_records_are_validated_hashed_and_saved_in_chunks() throws Exception {
+        when(userRepo.findUsernamesIn(anyCollection())).thenReturn(Collections.singletonList("taken"));
+        when(userRepo.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        String csv = "username,password,confirmPassword\n"
+                + "alice,password1,password1\n"
+                + "\"bob, jr\",\"pass,\"\"word\",\"pass,\"\"word\"\n"
+                + "\n"
+                + "carol,short,short\n"
+                + "taken,password1,password1\n"
+                + "dave,password1\n";
+        List<List<UserImporter.Result>> chunks = new ArrayList<>();
+
+        UserImporter.Summary summary = importer.importUsers(importer.readCsv(stream(csv)), chunks::add);
+
+        assertEquals(3, chunks.size());
+        List<UserImporter.Result> results = flatten(chunks);
+        assertEquals(Arrays.asList("alice", "bob, jr", "carol", "taken", "dave"),
+                results.stream().map(UserImporter.Result::getUsername).toList());
+        assertEquals(UserImporter.Status.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getId());
+        assertEquals(UserImporter.Status.CREATED, results.get(1).getStatus());
+        assertEquals(UserImporter.Status.REJECTED, results.get(2).getStatus());
+        assertNull(results.get(2).getId());
+        assertEquals("username is already taken", results.get(3).getError());
+        assertEquals(UserImporter.Status.CREATED, results.get(4).getStatus());
+        assertEquals(5, summary.getRecords());
+        assertEquals(3, summary.getCreated());
+        assertEquals(2, summary.getRejected());
+        // one saveAll per chunk that had valid records
+        verify(userRepo, times(2)).saveAll(anyList());
+        // hashed on the import pool but reported with the login hashing latency
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+        assertEquals(3, registry.get("password.hashing.latency").tag("operation", "import").functionTimer().count());
+        assertEquals(0, encoder.getQueueDepth());
+    }
+
+    @Test
+    public void failed_chunk_is_saved_record_by_record() throws Exception {
+        when(userRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            if (users.stream().anyMatch(u -> u.getUsername().equals("racer"))) {
+                throw new IllegalStateException("duplicate key");
+            }
+            return assignIds(users);
+        });
+        String ndjson = "{\"username\":\"racer\",\"password\":\"password1\"}\n"
+                + "{\"username\":\"erin\",\"password\":\"password1\",\"confirmPassword\":\"password1\"}\n"
+                + "{\"username\":";
+        List<List<UserImporter.Result>> chunks = new ArrayList<>();
+
+        UserImporter.Summary summary = importer.importUsers(importer.readNdjson(stream(ndjson)), chunks::add);
+
+        List<UserImporter.Result> results = flatten(chunks);
+        assertEquals(3, results.size());
+        assertEquals(UserImporter.Status.FAILED, results.get(0).getStatus());
+        assertEquals(UserImporter.Status.CREATED, results.get(1).getStatus());
+        assertEquals(UserImporter.Status.FAILED, results.get(2).getStatus());
+        assertEquals(1, summary.getCreated());
+        assertEquals(2, summary.getFailed());
+    }
+
+    @Test
+    public void csv_fields_handle_quotes() {
+        assertEquals(Arrays.asList("a", "b,c", "d\"e", ""), UserImporter.parseCsvLine("a,\"b,c\",\"d\"\"e\","));
+    }
+
+    private List<User> assignIds(List<User> users) {
+        for (User user : users) {
+            user.setId(ids.incrementAndGet());
+        }
+        return users;
+    }
+
+    private static List<UserImporter.Result> flatten(List<List<UserImporter.Result>> chunks) {
+        List<UserImporter.Result> results = new ArrayList<>();
+        chunks.forEach(results::addAll);
+        return results;
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}